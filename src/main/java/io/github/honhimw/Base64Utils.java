@@ -1,9 +1,16 @@
 package io.github.honhimw;
 
-import org.apache.commons.codec.binary.Base64;
-
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
@@ -13,6 +20,11 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 @SuppressWarnings("unused")
 public class Base64Utils {
 
+    /**
+     * 流式处理时的缓冲区大小, 编码时为3的倍数, 且是MIME每行57个字节的整数倍
+     */
+    private static final int BUFFER_SIZE = 57 * 144;
+
     public static String toBASE64(String string) {
         return toBASE64(string, UTF_8);
     }
@@ -26,15 +38,741 @@ public class Base64Utils {
     }
 
     public static String fromBASE64(String base64String, Charset charset) {
-        return new String(Base64.decodeBase64(base64String), charset);
+        return new String(decode(base64String), charset);
     }
 
     public static String toBASE64(byte[] bytes) {
-        return Base64.encodeBase64String(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
     }
 
+    /**
+     * 优先使用JDK解码(有intrinsic), 格式不规范(如混用URL安全字符、包含空白)时退回commons-codec的宽松解码
+     */
     public static byte[] decode(String base64String) {
-        return Base64.decodeBase64(base64String);
+        try {
+            return Base64.getDecoder().decode(base64String);
+        } catch (IllegalArgumentException e) {
+            return org.apache.commons.codec.binary.Base64.decodeBase64(base64String);
+        }
+    }
+
+    // ---------------- zero-copy ----------------
+
+    public static String encodeToString(byte[] src, Variant variant) {
+        return variant.encoder().encodeToString(src);
+    }
+
+    public static String encodeToString(byte[] src, Variant variant, boolean padding) {
+        return (padding ? variant.encoder() : variant.encoder().withoutPadding()).encodeToString(src);
+    }
+
+    /**
+     * 按UTF-8编码后再编码为Base64, 结果为Latin-1字符串, 不经过{@code char[]}.
+     * <p>
+     * {@link String#getBytes}与JDK Base64编码都有intrinsic, 比逐个读取char编码更快
+     */
+    public static String encodeToString(CharSequence src, Variant variant) {
+        return variant.encoder().encodeToString(src.toString().getBytes(UTF_8));
+    }
+
+    /**
+     * 编码写入调用方提供的缓冲区
+     *
+     * @param dst       目标数组, 需要{@link #encodedLength(int, Variant, boolean)}个位置
+     * @param dstOffset 目标起始下标
+     * @return 写入的字节数
+     */
+    public static int encode(byte[] src, byte[] dst, int dstOffset, Variant variant, boolean padding) {
+        int length = encodedLength(src.length, variant, padding);
+        if (dstOffset < 0 || dstOffset > dst.length - length) {
+            throw new IndexOutOfBoundsException(
+                String.format("offset: %s, length: %s, array length: %s", dstOffset, length, dst.length));
+        }
+        if (dstOffset == 0) {
+            return (padding ? variant.encoder() : variant.encoder().withoutPadding()).encode(src, dst);
+        }
+        new Encoder(variant, padding).encode(ByteBuffer.wrap(src), ByteBuffer.wrap(dst, dstOffset, length), true);
+        return length;
+    }
+
+    /**
+     * @param length 原始数据长度
+     * @return 编码后的长度, MIME包含换行符
+     */
+    public static int encodedLength(int length, Variant variant, boolean padding) {
+        long chars = padding ? (length + 2L) / 3 * 4 : length / 3 * 4L + (length % 3 == 0 ? 0 : length % 3 + 1);
+        int lineLength = variant.getLineLength();
+        if (lineLength > 0 && chars > 0) {
+            chars += (chars - 1) / lineLength * LINE_SEPARATOR.length;
+        }
+        if (chars > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("encoded length overflow: %s", chars));
+        }
+        return (int) chars;
+    }
+
+    /**
+     * 解码后的长度, 不校验字符是否合法; MIME需要遍历统计字母表内的字符
+     *
+     * @throws IllegalArgumentException 末尾分组不完整
+     */
+    public static int decodedLength(CharSequence src, Variant variant) {
+        int chars = 0;
+        int length = src.length();
+        if (variant == Variant.MIME) {
+            for (int i = 0; i < length; i++) {
+                char c = src.charAt(i);
+                if (c == PAD) {
+                    break;
+                }
+                if (c <= 0xFF && BASIC_TABLE[c] >= 0) {
+                    chars++;
+                }
+            }
+        } else {
+            while (length > 0 && src.charAt(length - 1) == PAD && src.length() - length < 2) {
+                length--;
+            }
+            chars = length;
+        }
+        return decodedLength(chars);
+    }
+
+    /**
+     * @see #decodedLength(CharSequence, Variant)
+     */
+    public static int decodedLength(byte[] src, int offset, int length, Variant variant) {
+        int chars = 0;
+        if (variant == Variant.MIME) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                if (src[i] == PAD) {
+                    break;
+                }
+                if (BASIC_TABLE[src[i] & 0xFF] >= 0) {
+                    chars++;
+                }
+            }
+        } else {
+            int end = offset + length;
+            while (end > offset && src[end - 1] == PAD && offset + length - end < 2) {
+                end--;
+            }
+            chars = end - offset;
+        }
+        return decodedLength(chars);
+    }
+
+    private static int decodedLength(int chars) {
+        if ((chars & 3) == 1) {
+            throw new IllegalArgumentException("last unit does not have enough valid bits");
+        }
+        return chars / 4 * 3 + ((chars & 3) == 0 ? 0 : (chars & 3) - 1);
+    }
+
+    /**
+     * 严格解码
+     *
+     * @throws IllegalArgumentException 非法字符或末尾分组不完整
+     */
+    public static byte[] decode(CharSequence src, Variant variant) {
+        return variant.decoder().decode(src.toString());
+    }
+
+    /**
+     * 解码写入调用方提供的缓冲区, 可以先通过{@link #decodedLength(CharSequence, Variant)}确定长度
+     *
+     * @param dst       目标数组
+     * @param dstOffset 目标起始下标
+     * @return 写入的字节数
+     * @throws IllegalArgumentException 非法字符、末尾分组不完整或dst空间不足
+     */
+    public static int decode(CharSequence src, byte[] dst, int dstOffset, Variant variant) {
+        Objects.checkIndex(dstOffset, dst.length + 1);
+        int decodedLength = decodedLength(src, variant);
+        if (decodedLength > dst.length - dstOffset) {
+            throw new IllegalArgumentException("output byte array is too small for decoding all input bytes");
+        }
+        return new Decoder(variant).decode(src, dst, dstOffset) - dstOffset;
+    }
+
+    /**
+     * @see #decode(CharSequence, byte[], int, Variant)
+     */
+    public static int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset, Variant variant) {
+        Objects.checkFromIndexSize(offset, length, src.length);
+        Objects.checkIndex(dstOffset, dst.length + 1);
+        int decodedLength = decodedLength(src, offset, length, variant);
+        if (decodedLength > dst.length - dstOffset) {
+            throw new IllegalArgumentException("output byte array is too small for decoding all input bytes");
+        }
+        if (offset == 0 && length == src.length && dstOffset == 0) {
+            return variant.decoder().decode(src, dst);
+        }
+        ByteBuffer out = ByteBuffer.wrap(dst, dstOffset, dst.length - dstOffset);
+        new Decoder(variant).decode(ByteBuffer.wrap(src, offset, length), out, true);
+        return out.position() - dstOffset;
+    }
+
+    // ---------------- streaming ----------------
+
+    /**
+     * 写入的原始数据编码后写入out, 关闭时写出末尾的分组并关闭out
+     */
+    public static OutputStream encodingStream(OutputStream out, Variant variant) {
+        return variant.encoder().wrap(out);
+    }
+
+    /**
+     * 读取时从in读取Base64并解码, 关闭时关闭in
+     */
+    public static InputStream decodingStream(InputStream in, Variant variant) {
+        return variant.decoder().wrap(in);
+    }
+
+    /**
+     * 读取时从in读取原始数据并返回编码后的Base64, 适用于作为请求体上传, 关闭时关闭in
+     */
+    public static InputStream encodingInputStream(InputStream in, Variant variant) {
+        return new CodecInputStream(in, new Encoder(variant));
+    }
+
+    /**
+     * 写入的Base64解码后写入out, 关闭时校验末尾的分组并关闭out
+     */
+    public static OutputStream decodingOutputStream(OutputStream out, Variant variant) {
+        return new CodecOutputStream(out, new Decoder(variant));
+    }
+
+    /**
+     * 编码in直到末尾写入out, 不关闭in、out
+     *
+     * @return 读取的原始数据长度
+     */
+    public static long encode(InputStream in, OutputStream out, Variant variant) throws IOException {
+        OutputStream nonClosing = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        try (OutputStream encoding = encodingStream(nonClosing, variant)) {
+            return in.transferTo(encoding);
+        }
+    }
+
+    /**
+     * 解码in直到末尾写入out, 不关闭in、out
+     *
+     * @return 解码后的数据长度
+     */
+    public static long decode(InputStream in, OutputStream out, Variant variant) throws IOException {
+        return variant.decoder().wrap(in).transferTo(out);
+    }
+
+    public enum Variant {
+
+        /**
+         * RFC 4648标准字母表
+         */
+        BASIC(Base64.getEncoder(), Base64.getDecoder(), false, 0),
+
+        /**
+         * RFC 4648 URL安全字母表, '-'与'_'代替'+'与'/'
+         */
+        URL_SAFE(Base64.getUrlEncoder(), Base64.getUrlDecoder(), true, 0),
+
+        /**
+         * RFC 2045, 每76个字符换行(CRLF), 解码时忽略字母表以外的字符
+         */
+        MIME(Base64.getMimeEncoder(), Base64.getMimeDecoder(), false, 76),
+        ;
+
+        private final Base64.Encoder encoder;
+
+        private final Base64.Decoder decoder;
+
+        private final boolean urlSafe;
+
+        private final int lineLength;
+
+        Variant(Base64.Encoder encoder, Base64.Decoder decoder, boolean urlSafe, int lineLength) {
+            this.encoder = encoder;
+            this.decoder = decoder;
+            this.urlSafe = urlSafe;
+            this.lineLength = lineLength;
+        }
+
+        public Base64.Encoder encoder() {
+            return encoder;
+        }
+
+        public Base64.Decoder decoder() {
+            return decoder;
+        }
+
+        public boolean isUrlSafe() {
+            return urlSafe;
+        }
+
+        /**
+         * @return 每行字符数, 0表示不换行
+         */
+        public int getLineLength() {
+            return lineLength;
+        }
+
+    }
+
+    private static final byte[] BASIC_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(ISO_8859_1);
+
+    private static final byte[] URL_SAFE_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(ISO_8859_1);
+
+    private static final byte[] LINE_SEPARATOR = {'\r', '\n'};
+
+    private static final byte PAD = '=';
+
+    /**
+     * 字符到6位值的映射, 非法字符为-1
+     */
+    private static final int[] BASIC_TABLE = decodeTable(BASIC_ALPHABET);
+
+    private static final int[] URL_SAFE_TABLE = decodeTable(URL_SAFE_ALPHABET);
+
+    private static int[] decodeTable(byte[] alphabet) {
+        int[] table = new int[256];
+        Arrays.fill(table, -1);
+        for (int i = 0; i < alphabet.length; i++) {
+            table[alphabet[i]] = i;
+        }
+        return table;
+    }
+
+    /**
+     * 增量编解码, 语义与{@link java.nio.charset.CharsetEncoder}类似: 尽可能处理src, 写入dst
+     */
+    private interface Codec {
+
+        /**
+         * @param endOfInput src之后是否还有数据
+         * @return true: src已处理完(非末尾时可能剩余不足一组, 需要调用方compact后继续读取); false: dst空间不足
+         */
+        boolean process(ByteBuffer src, ByteBuffer dst, boolean endOfInput);
+
+    }
+
+    /**
+     * 增量编码器, 非线程安全; 不足3个字节的剩余数据留在src中, 直到endOfInput
+     */
+    public static final class Encoder implements Codec {
+
+        private final byte[] alphabet;
+
+        private final boolean padding;
+
+        private final int lineLength;
+
+        // 当前行已写入的字符数
+        private int linePosition;
+
+        public Encoder(Variant variant) {
+            this(variant, true);
+        }
+
+        public Encoder(Variant variant, boolean padding) {
+            this.alphabet = variant.isUrlSafe() ? URL_SAFE_ALPHABET : BASIC_ALPHABET;
+            this.padding = padding;
+            this.lineLength = variant.getLineLength();
+        }
+
+        /**
+         * @param endOfInput src之后是否还有数据, 为true时输出末尾不足3个字节的分组
+         * @return true: src已处理完, 非末尾时可能剩余不足3个字节, 由调用方compact后继续读取; false: dst空间不足
+         */
+        public boolean encode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+            while (src.remaining() >= 3 || endOfInput && src.hasRemaining()) {
+                int separator = lineLength > 0 && linePosition == lineLength ? LINE_SEPARATOR.length : 0;
+                int n = Math.min(3, src.remaining());
+                // 不填充时末尾分组只输出n+1个字符
+                if (dst.remaining() < separator + (n == 3 || padding ? 4 : n + 1)) {
+                    return false;
+                }
+                if (separator > 0) {
+                    dst.put(LINE_SEPARATOR);
+                    linePosition = 0;
+                }
+                int bits = (src.get() & 0xFF) << 16;
+                if (n > 1) {
+                    bits |= (src.get() & 0xFF) << 8;
+                }
+                if (n > 2) {
+                    bits |= src.get() & 0xFF;
+                }
+                dst.put(alphabet[bits >>> 18 & 0x3F]);
+                dst.put(alphabet[bits >>> 12 & 0x3F]);
+                if (n > 1) {
+                    dst.put(alphabet[bits >>> 6 & 0x3F]);
+                } else if (padding) {
+                    dst.put(PAD);
+                }
+                if (n > 2) {
+                    dst.put(alphabet[bits & 0x3F]);
+                } else if (padding) {
+                    dst.put(PAD);
+                }
+                linePosition += 4;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean process(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+            return encode(src, dst, endOfInput);
+        }
+
+        public void reset() {
+            linePosition = 0;
+        }
+
+    }
+
+    /**
+     * 增量解码器, 非线程安全; 不完整的分组保存在内部状态中, 填充'='可省略
+     */
+    public static final class Decoder implements Codec {
+
+        private final int[] table;
+
+        private final boolean ignoreIllegal;
+
+        // 已读取但未输出的6位值
+        private int bits;
+
+        private int count;
+
+        private boolean padded;
+
+        public Decoder(Variant variant) {
+            this.table = variant.isUrlSafe() ? URL_SAFE_TABLE : BASIC_TABLE;
+            this.ignoreIllegal = variant == Variant.MIME;
+        }
+
+        /**
+         * @param endOfInput src之后是否还有数据, 为true时输出内部保存的不完整分组
+         * @return true: src已全部读取; false: dst空间不足
+         * @throws IllegalArgumentException 非法字符或末尾分组不完整
+         */
+        public boolean decode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+            while (src.hasRemaining()) {
+                // 完整分组的快速路径
+                if (count == 0 && !padded && src.remaining() >= 4 && dst.remaining() >= 3) {
+                    int position = src.position();
+                    int b0 = table[src.get(position) & 0xFF];
+                    int b1 = table[src.get(position + 1) & 0xFF];
+                    int b2 = table[src.get(position + 2) & 0xFF];
+                    int b3 = table[src.get(position + 3) & 0xFF];
+                    if ((b0 | b1 | b2 | b3) >= 0) {
+                        int group = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+                        dst.put((byte) (group >>> 16));
+                        dst.put((byte) (group >>> 8));
+                        dst.put((byte) group);
+                        src.position(position + 4);
+                        continue;
+                    }
+                }
+                int position = src.position();
+                int c = src.get(position) & 0xFF;
+                int value = table[c];
+                if (value < 0) {
+                    if (c == PAD && count >= 2) {
+                        padded = true;
+                    } else if (c == PAD && padded) {
+                        // 第二个'='
+                    } else if (!ignoreIllegal) {
+                        throw new IllegalArgumentException(String.format("illegal base64 character 0x%02x", c));
+                    }
+                    src.position(position + 1);
+                    continue;
+                }
+                if (padded) {
+                    if (ignoreIllegal) {
+                        src.position(position + 1);
+                        continue;
+                    }
+                    throw new IllegalArgumentException("base64 data after padding");
+                }
+                if (count == 3 && dst.remaining() < 3) {
+                    return false;
+                }
+                src.position(position + 1);
+                bits = bits << 6 | value;
+                if (++count == 4) {
+                    dst.put((byte) (bits >>> 16));
+                    dst.put((byte) (bits >>> 8));
+                    dst.put((byte) bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+            if (endOfInput) {
+                return finish(dst);
+            }
+            return true;
+        }
+
+        /**
+         * 逐个charAt解码整个字符序列写入dst, 不经过中间数组; 调用方保证dst空间足够
+         *
+         * @return 写入后的下标
+         */
+        private int decode(CharSequence src, byte[] dst, int dstOffset) {
+            final int length = src.length();
+            int i = 0;
+            while (i < length) {
+                // 完整分组的快速路径
+                if (count == 0 && !padded && length - i >= 4) {
+                    char c0 = src.charAt(i);
+                    char c1 = src.charAt(i + 1);
+                    char c2 = src.charAt(i + 2);
+                    char c3 = src.charAt(i + 3);
+                    if ((c0 | c1 | c2 | c3) <= 0xFF) {
+                        int b0 = table[c0];
+                        int b1 = table[c1];
+                        int b2 = table[c2];
+                        int b3 = table[c3];
+                        if ((b0 | b1 | b2 | b3) >= 0) {
+                            int group = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+                            dst[dstOffset++] = (byte) (group >>> 16);
+                            dst[dstOffset++] = (byte) (group >>> 8);
+                            dst[dstOffset++] = (byte) group;
+                            i += 4;
+                            continue;
+                        }
+                    }
+                }
+                char c = src.charAt(i++);
+                int value = c <= 0xFF ? table[c] : -1;
+                if (value < 0) {
+                    if (c == PAD && count >= 2) {
+                        padded = true;
+                    } else if (c == PAD && padded) {
+                        // 第二个'='
+                    } else if (!ignoreIllegal) {
+                        throw new IllegalArgumentException(String.format("illegal base64 character 0x%02x", (int) c));
+                    }
+                    continue;
+                }
+                if (padded) {
+                    if (ignoreIllegal) {
+                        continue;
+                    }
+                    throw new IllegalArgumentException("base64 data after padding");
+                }
+                bits = bits << 6 | value;
+                if (++count == 4) {
+                    dst[dstOffset++] = (byte) (bits >>> 16);
+                    dst[dstOffset++] = (byte) (bits >>> 8);
+                    dst[dstOffset++] = (byte) bits;
+                    bits = 0;
+                    count = 0;
+                }
+            }
+            switch (count) {
+                case 0:
+                    break;
+                case 1:
+                    throw new IllegalArgumentException("last unit does not have enough valid bits");
+                case 2:
+                    dst[dstOffset++] = (byte) (bits >>> 4);
+                    break;
+                default:
+                    dst[dstOffset++] = (byte) (bits >>> 10);
+                    dst[dstOffset++] = (byte) (bits >>> 2);
+                    break;
+            }
+            reset();
+            return dstOffset;
+        }
+
+        private boolean finish(ByteBuffer dst) {
+            switch (count) {
+                case 0:
+                    break;
+                case 1:
+                    throw new IllegalArgumentException("last unit does not have enough valid bits");
+                case 2:
+                    if (!dst.hasRemaining()) {
+                        return false;
+                    }
+                    dst.put((byte) (bits >>> 4));
+                    break;
+                default:
+                    if (dst.remaining() < 2) {
+                        return false;
+                    }
+                    dst.put((byte) (bits >>> 10));
+                    dst.put((byte) (bits >>> 2));
+                    break;
+            }
+            bits = 0;
+            count = 0;
+            return true;
+        }
+
+        @Override
+        public boolean process(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+            return decode(src, dst, endOfInput);
+        }
+
+        public void reset() {
+            bits = 0;
+            count = 0;
+            padded = false;
+        }
+
+    }
+
+    private static final class CodecInputStream extends InputStream {
+
+        private final InputStream in;
+
+        private final Codec codec;
+
+        private final ByteBuffer src = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private final ByteBuffer dst = ByteBuffer.allocate(BUFFER_SIZE * 2);
+
+        private boolean eof;
+
+        private boolean finished;
+
+        private CodecInputStream(InputStream in, Codec codec) {
+            this.in = in;
+            this.codec = codec;
+            src.flip();
+            dst.flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            while (!dst.hasRemaining()) {
+                if (finished) {
+                    return -1;
+                }
+                fill();
+            }
+            int n = Math.min(len, dst.remaining());
+            dst.get(b, off, n);
+            return n;
+        }
+
+        private void fill() throws IOException {
+            if (!eof) {
+                src.compact();
+                int read = in.read(src.array(), src.position(), src.remaining());
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    src.position(src.position() + read);
+                }
+                src.flip();
+            }
+            dst.clear();
+            finished = codec.process(src, dst, eof) && eof;
+            dst.flip();
+        }
+
+        @Override
+        public int available() {
+            return dst.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+    }
+
+    private static final class CodecOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final Codec codec;
+
+        private final ByteBuffer dst = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private boolean closed;
+
+        private CodecOutputStream(OutputStream out, Codec codec) {
+            this.out = out;
+            this.codec = codec;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            ByteBuffer src = ByteBuffer.wrap(b, off, len);
+            while (!codec.process(src, dst, false)) {
+                drain();
+            }
+            if (src.hasRemaining()) {
+                // 仅编码时可能剩余不足一组, 解码器会把不完整的分组保存在内部状态中
+                throw new IllegalStateException("codec left unconsumed input");
+            }
+        }
+
+        private void drain() throws IOException {
+            out.write(dst.array(), 0, dst.position());
+            dst.clear();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    ByteBuffer empty = ByteBuffer.allocate(0);
+                    while (!codec.process(empty, dst, true)) {
+                        drain();
+                    }
+                    drain();
+                } finally {
+                    out.close();
+                }
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,646 @@
+package io.github.honhimw;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import org.xerial.snappy.SnappyFramedInputStream;
+import org.xerial.snappy.SnappyFramedOutputStream;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.*;
+
+/**
+ * 多格式压缩: gzip、deflate(zlib)、LZ4、Zstandard、Snappy.
+ * <p>
+ * 压缩时指定{@link Codec}, 解压时根据数据开头的magic自动识别格式. gzip/deflate可以设置压缩级别和策略;
+ * LZ4、Zstandard、Snappy依赖可选的lz4-java、zstd-jni、snappy-java, 未引入时使用对应的Codec会抛出{@link IllegalStateException}.
+ * LZ4和Snappy使用带magic的frame格式, 不是裸block格式, 与命令行工具互通
+ * <pre>{@code
+ * byte[] compressed = CompressionUtils.compress(data, CompressionUtils.LZ4);
+ * byte[] data = CompressionUtils.decompress(compressed);
+ * }</pre>
+ *
+ * @author hon_him
+ * @see GZipUtils
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public final class CompressionUtils {
+
+    private CompressionUtils() {
+    }
+
+    /**
+     * 自动识别时读取的头部长度, 自定义{@link Codec}的magic不能超过该长度
+     */
+    public static final int MAGIC_LENGTH = 16;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    public static final Codec GZIP = gzip(Deflater.DEFAULT_COMPRESSION);
+
+    public static final Codec DEFLATE = deflate(Deflater.DEFAULT_COMPRESSION);
+
+    public static final Codec LZ4 = lz4(0);
+
+    public static final Codec ZSTD = zstd(3);
+
+    public static final Codec SNAPPY = new SnappyCodec();
+
+    /**
+     * 自动识别的顺序, 自定义格式在最前; zlib头只有2字节, 误判的概率最高, 放在最后
+     */
+    private static final List<Codec> CODECS = new CopyOnWriteArrayList<>(List.of(GZIP, ZSTD, LZ4, SNAPPY, DEFLATE));
+
+    /**
+     * @param level 压缩级别[0,9], -1为默认级别(6)
+     */
+    public static Codec gzip(int level) {
+        return gzip(level, Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * @param level    压缩级别[0,9], -1为默认级别(6)
+     * @param strategy {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED}, {@link Deflater#HUFFMAN_ONLY}
+     */
+    public static Codec gzip(int level, int strategy) {
+        checkDeflater(level, strategy);
+        return new GzipCodec(level, strategy);
+    }
+
+    /**
+     * zlib格式(RFC 1950), 比gzip少了文件头和CRC32, 使用Adler-32校验
+     *
+     * @param level 压缩级别[0,9], -1为默认级别(6)
+     */
+    public static Codec deflate(int level) {
+        return deflate(level, Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * @param level    压缩级别[0,9], -1为默认级别(6)
+     * @param strategy {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED}, {@link Deflater#HUFFMAN_ONLY}
+     */
+    public static Codec deflate(int level, int strategy) {
+        checkDeflater(level, strategy);
+        return new DeflateCodec(level, strategy);
+    }
+
+    /**
+     * LZ4 frame格式, 64KB独立块
+     *
+     * @param level 0为快速模式, [1,17]为高压缩模式, 越大压缩率越高、越慢
+     */
+    public static Codec lz4(int level) {
+        if (level < 0 || level > 17) {
+            throw new IllegalArgumentException(String.format("lz4 level range [0,17], got: %s", level));
+        }
+        return new Lz4Codec(level);
+    }
+
+    /**
+     * @param level 压缩级别[-7,22], 负数为快速模式, 默认为3
+     */
+    public static Codec zstd(int level) {
+        if (level < -7 || level > 22) {
+            throw new IllegalArgumentException(String.format("zstd level range [-7,22], got: %s", level));
+        }
+        return new ZstdCodec(level);
+    }
+
+    /**
+     * 注册自定义格式, 自动识别时优先于内置格式
+     */
+    public static void register(Codec codec) {
+        CODECS.add(0, codec);
+    }
+
+    /**
+     * 根据magic识别格式
+     *
+     * @return 无法识别时返回null
+     */
+    public static Codec detect(byte[] data) {
+        return detect(data, Math.min(data.length, MAGIC_LENGTH));
+    }
+
+    private static Codec detect(byte[] header, int length) {
+        for (Codec codec : CODECS) {
+            if (codec.matches(header, length)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    private static Codec require(byte[] header, int length) {
+        Codec codec = detect(header, length);
+        if (codec == null) {
+            throw new IllegalArgumentException(String.format("unknown compression format, header: %s",
+                HexUtils.encode(header, 0, length, false)));
+        }
+        return codec;
+    }
+
+    // ---------------- compress ----------------
+
+    public static byte[] compress(byte[] data, Codec codec) throws IOException {
+        return codec.compress(data);
+    }
+
+    /**
+     * 读取直到末尾, 不关闭流
+     */
+    public static void compress(InputStream in, OutputStream out, Codec codec) throws IOException {
+        try (OutputStream compressor = codec.compressor(nonClosing(out))) {
+            in.transferTo(compressor);
+        }
+    }
+
+    // ---------------- decompress ----------------
+
+    /**
+     * 自动识别格式
+     *
+     * @throws IllegalArgumentException 无法识别的格式
+     */
+    public static byte[] decompress(byte[] data) throws IOException {
+        return require(data, Math.min(data.length, MAGIC_LENGTH)).decompress(data);
+    }
+
+    public static byte[] decompress(byte[] data, Codec codec) throws IOException {
+        return codec.decompress(data);
+    }
+
+    /**
+     * 自动识别格式, 读取直到末尾, 不关闭流
+     *
+     * @throws IllegalArgumentException 无法识别的格式
+     */
+    public static void decompress(InputStream in, OutputStream out) throws IOException {
+        try (InputStream decompressor = decompressor(nonClosing(in))) {
+            decompressor.transferTo(out);
+        }
+    }
+
+    /**
+     * 不关闭流
+     */
+    public static void decompress(InputStream in, OutputStream out, Codec codec) throws IOException {
+        try (InputStream decompressor = codec.decompressor(nonClosing(in))) {
+            decompressor.transferTo(out);
+        }
+    }
+
+    /**
+     * 自动识别格式, 关闭返回的流时关闭in. in不支持mark时会包装一层以回退已读取的头部
+     *
+     * @throws IllegalArgumentException 无法识别的格式
+     */
+    public static InputStream decompressor(InputStream in) throws IOException {
+        byte[] header = new byte[MAGIC_LENGTH];
+        int length;
+        if (in.markSupported()) {
+            in.mark(MAGIC_LENGTH);
+            length = in.readNBytes(header, 0, MAGIC_LENGTH);
+            in.reset();
+        } else {
+            PushbackInputStream pushback = new PushbackInputStream(in, MAGIC_LENGTH);
+            length = pushback.readNBytes(header, 0, MAGIC_LENGTH);
+            pushback.unread(header, 0, length);
+            in = pushback;
+        }
+        return require(header, length).decompressor(in);
+    }
+
+    private static void checkDeflater(int level, int strategy) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(String.format("deflate level range [-1,9], got: %s", level));
+        }
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException(String.format("unknown deflate strategy: %s", strategy));
+        }
+    }
+
+    private static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        };
+    }
+
+    private static InputStream nonClosing(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * 压缩格式. 实现需要线程安全, 每次调用创建独立的流
+     */
+    public interface Codec {
+
+        String name();
+
+        /**
+         * @param header 数据开头
+         * @param length header的有效长度, 不超过{@link #MAGIC_LENGTH}, 数据较短时可能小于magic长度
+         */
+        boolean matches(byte[] header, int length);
+
+        /**
+         * 关闭返回的流时写入结尾并关闭out
+         */
+        OutputStream compressor(OutputStream out) throws IOException;
+
+        /**
+         * 关闭返回的流时关闭in
+         */
+        InputStream decompressor(InputStream in) throws IOException;
+
+        /**
+         * @return 依赖的第三方库是否存在
+         */
+        default boolean isAvailable() {
+            return true;
+        }
+
+        default byte[] compress(byte[] data) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length >>> 1));
+            try (OutputStream compressor = compressor(out)) {
+                compressor.write(data);
+            }
+            return out.toByteArray();
+        }
+
+        default byte[] decompress(byte[] data) throws IOException {
+            try (InputStream decompressor = decompressor(new ByteArrayInputStream(data))) {
+                return decompressor.readAllBytes();
+            }
+        }
+
+    }
+
+    private static final class GzipCodec implements Codec {
+
+        private final int level;
+
+        private final int strategy;
+
+        private GzipCodec(int level, int strategy) {
+            this.level = level;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public String name() {
+            return "gzip";
+        }
+
+        @Override
+        public boolean matches(byte[] header, int length) {
+            return length >= 2 && header[0] == (byte) 0x1F && header[1] == (byte) 0x8B;
+        }
+
+        @Override
+        public OutputStream compressor(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                    def.setStrategy(strategy);
+                }
+            };
+        }
+
+        @Override
+        public InputStream decompressor(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("gzip(level=%s, strategy=%s)", level, strategy);
+        }
+
+    }
+
+    private static final class DeflateCodec implements Codec {
+
+        private final int level;
+
+        private final int strategy;
+
+        private DeflateCodec(int level, int strategy) {
+            this.level = level;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public String name() {
+            return "deflate";
+        }
+
+        /**
+         * zlib头: CM为8, 窗口不超过32KB, 没有预置字典, 两个字节按大端组成的数能被31整除
+         */
+        @Override
+        public boolean matches(byte[] header, int length) {
+            if (length < 2) {
+                return false;
+            }
+            int cmf = header[0] & 0xFF;
+            int flg = header[1] & 0xFF;
+            return (cmf & 0x0F) == 8 && cmf >>> 4 <= 7 && (flg & 0x20) == 0 && (cmf << 8 | flg) % 31 == 0;
+        }
+
+        /**
+         * 自定义的Deflater不会被DeflaterOutputStream释放, 关闭时手动释放
+         */
+        @Override
+        public OutputStream compressor(OutputStream out) {
+            Deflater deflater = new Deflater(level);
+            deflater.setStrategy(strategy);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decompressor(InputStream in) {
+            Inflater inflater = new Inflater();
+            return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return String.format("deflate(level=%s, strategy=%s)", level, strategy);
+        }
+
+    }
+
+    /**
+     * 依赖可选第三方库的格式. 第三方库的类只出现在各自的Support类中, 未引入依赖时不会被加载
+     */
+    private abstract static class OptionalCodec implements Codec {
+
+        private final String name;
+
+        private final String artifact;
+
+        private final byte[] magic;
+
+        private final boolean available;
+
+        private OptionalCodec(String name, String artifact, String probe, byte... magic) {
+            this.name = name;
+            this.artifact = artifact;
+            this.magic = magic;
+            boolean found;
+            try {
+                Class.forName(probe, false, CompressionUtils.class.getClassLoader());
+                found = true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                found = false;
+            }
+            this.available = found;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public boolean matches(byte[] header, int length) {
+            return length >= magic.length && Arrays.equals(header, 0, magic.length, magic, 0, magic.length);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+
+        @Override
+        public OutputStream compressor(OutputStream out) throws IOException {
+            check();
+            return newCompressor(out);
+        }
+
+        @Override
+        public InputStream decompressor(InputStream in) throws IOException {
+            check();
+            return newDecompressor(in);
+        }
+
+        protected abstract OutputStream newCompressor(OutputStream out) throws IOException;
+
+        protected abstract InputStream newDecompressor(InputStream in) throws IOException;
+
+        protected void check() {
+            if (!available) {
+                throw new IllegalStateException(String.format("%s codec requires '%s' in classpath", name, artifact));
+            }
+        }
+
+    }
+
+    private static final class Lz4Codec extends OptionalCodec {
+
+        private final int level;
+
+        private Lz4Codec(int level) {
+            super("lz4", "org.lz4:lz4-java", "net.jpountz.lz4.LZ4FrameOutputStream",
+                (byte) 0x04, (byte) 0x22, (byte) 0x4D, (byte) 0x18);
+            this.level = level;
+        }
+
+        @Override
+        protected OutputStream newCompressor(OutputStream out) throws IOException {
+            return Lz4Support.compressor(out, level);
+        }
+
+        @Override
+        protected InputStream newDecompressor(InputStream in) throws IOException {
+            return Lz4Support.decompressor(in);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("lz4(level=%s)", level);
+        }
+
+    }
+
+    private static final class Lz4Support {
+
+        static OutputStream compressor(OutputStream out, int level) throws IOException {
+            LZ4Factory factory = LZ4Factory.fastestInstance();
+            LZ4Compressor compressor = level == 0 ? factory.fastCompressor() : factory.highCompressor(level);
+            // 默认4MB的块对小数据浪费内存, 使用64KB
+            return new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB, -1L,
+                compressor, XXHashFactory.fastestInstance().hash32(), LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+        }
+
+        static InputStream decompressor(InputStream in) throws IOException {
+            return new LZ4FrameInputStream(in);
+        }
+
+    }
+
+    private static final class ZstdCodec extends OptionalCodec {
+
+        private final int level;
+
+        private ZstdCodec(int level) {
+            super("zstd", "com.github.luben:zstd-jni", "com.github.luben.zstd.Zstd",
+                (byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD);
+            this.level = level;
+        }
+
+        @Override
+        protected OutputStream newCompressor(OutputStream out) throws IOException {
+            return ZstdSupport.compressor(out, level);
+        }
+
+        @Override
+        protected InputStream newDecompressor(InputStream in) throws IOException {
+            return ZstdSupport.decompressor(in);
+        }
+
+        /**
+         * 单次压缩, frame中记录原始长度
+         */
+        @Override
+        public byte[] compress(byte[] data) {
+            check();
+            return ZstdSupport.compress(data, level);
+        }
+
+        @Override
+        public byte[] decompress(byte[] data) throws IOException {
+            check();
+            byte[] result = ZstdSupport.decompress(data);
+            if (result != null) {
+                return result;
+            }
+            try (InputStream decompressor = newDecompressor(new ByteArrayInputStream(data))) {
+                return decompressor.readAllBytes();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("zstd(level=%s)", level);
+        }
+
+    }
+
+    private static final class ZstdSupport {
+
+        /**
+         * RLE block用4字节表示128KB, 压缩比不超过32768:1, 用于校验frame中记录的原始长度, 防止伪造的长度导致超大分配
+         */
+        private static final int MAX_RATIO = 32 * 1024;
+
+        static OutputStream compressor(OutputStream out, int level) throws IOException {
+            return new ZstdOutputStream(out, RecyclingBufferPool.INSTANCE, level);
+        }
+
+        static InputStream decompressor(InputStream in) throws IOException {
+            return new ZstdInputStream(in, RecyclingBufferPool.INSTANCE);
+        }
+
+        static byte[] compress(byte[] data, int level) {
+            return Zstd.compress(data, level);
+        }
+
+        /**
+         * @return 流式压缩的数据没有记录原始长度, 多个frame拼接时只记录了第一个frame的长度, 记录的长度超出压缩比上限时不可信, 均返回null
+         */
+        static byte[] decompress(byte[] data) {
+            long size = Zstd.decompressedSize(data);
+            if (size <= 0 || size > Integer.MAX_VALUE - 8 || size > (long) data.length * MAX_RATIO) {
+                return null;
+            }
+            try {
+                return Zstd.decompress(data, (int) size);
+            } catch (ZstdException e) {
+                return null;
+            }
+        }
+
+    }
+
+    private static final class SnappyCodec extends OptionalCodec {
+
+        private SnappyCodec() {
+            super("snappy", "org.xerial.snappy:snappy-java", "org.xerial.snappy.SnappyFramedOutputStream",
+                (byte) 0xFF, (byte) 0x06, (byte) 0x00, (byte) 0x00,
+                (byte) 0x73, (byte) 0x4E, (byte) 0x61, (byte) 0x50, (byte) 0x70, (byte) 0x59);
+        }
+
+        @Override
+        protected OutputStream newCompressor(OutputStream out) throws IOException {
+            return SnappySupport.compressor(out);
+        }
+
+        @Override
+        protected InputStream newDecompressor(InputStream in) throws IOException {
+            return SnappySupport.decompressor(in);
+        }
+
+        @Override
+        public String toString() {
+            return "snappy";
+        }
+
+    }
+
+    private static final class SnappySupport {
+
+        static OutputStream compressor(OutputStream out) throws IOException {
+            return new SnappyFramedOutputStream(out);
+        }
+
+        static InputStream decompressor(InputStream in) throws IOException {
+            return new SnappyFramedInputStream(in);
+        }
+
+    }
+
+}
@@ -0,0 +1,319 @@
+package io.github.honhimw;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于内容的分块(FastCDC), 用于去重存储、增量备份: 修改文件的一部分只影响附近的分块, 其余分块的摘要不变.
+ * <p>
+ * 使用Gear滚动哈希查找切分点, 跳过最小长度, 并按平均长度归一化(小于平均长度时用更严格的掩码), 分块长度集中在平均值附近.
+ * 流式读取, 内存占用固定为两倍最大分块长度; 每个分块通过{@link HashUtils}计算摘要
+ * <pre>{@code
+ * ContentDefinedChunker chunker = ContentDefinedChunker.builder().avgSize(16 * 1024).build();
+ * chunker.chunk(inputStream, (chunk, data) -> {
+ *     if (!store.exists(chunk.toHexString())) {
+ *         store.put(chunk.toHexString(), data);
+ *     }
+ * });
+ * }</pre>
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public final class ContentDefinedChunker {
+
+    public static final int DEFAULT_MIN_SIZE = 2 * 1024;
+
+    public static final int DEFAULT_AVG_SIZE = 8 * 1024;
+
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+    /**
+     * 滚动哈希的窗口为64字节, 最小长度不能小于窗口, 否则切分点不能只由内容决定
+     */
+    private static final int WINDOW = 64;
+
+    /**
+     * Gear表由固定种子的SplitMix64生成, 切分点与版本、运行环境无关, 不能修改
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < GEAR.length; i++) {
+            long z = (seed += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    public static final ContentDefinedChunker DEFAULT = builder().build();
+
+    private final int minSize;
+
+    private final int avgSize;
+
+    private final int maxSize;
+
+    private final String algorithm;
+
+    // 未达到平均长度时使用的掩码, 1的位数更多, 更难切分
+    private final long maskS;
+
+    // 超过平均长度后使用的掩码
+    private final long maskL;
+
+    private ContentDefinedChunker(Builder builder) {
+        this.minSize = builder.minSize;
+        this.avgSize = builder.avgSize;
+        this.maxSize = builder.maxSize;
+        this.algorithm = builder.algorithm;
+        int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        // 取高位, 高位受最近64字节影响, 低位只受最近几个字节影响
+        this.maskS = -1L << (64 - bits - builder.normalization);
+        this.maskL = -1L << (64 - bits + builder.normalization);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getAvgSize() {
+        return avgSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 查找下一个切分点
+     *
+     * @param src    数据
+     * @param offset 分块起始下标
+     * @param length 可用的数据长度, 不是末尾时应不小于{@link #getMaxSize()}
+     * @return 分块长度
+     */
+    public int cut(byte[] src, int offset, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int n = Math.min(length, maxSize);
+        int normal = Math.min(n, avgSize);
+        long fp = 0;
+        int i = minSize - WINDOW;
+        for (; i < normal; i++) {
+            fp = (fp << 1) + GEAR[src[offset + i] & 0xFF];
+            if ((fp & maskS) == 0 && i >= minSize) {
+                return i + 1;
+            }
+        }
+        for (; i < n; i++) {
+            fp = (fp << 1) + GEAR[src[offset + i] & 0xFF];
+            if ((fp & maskL) == 0) {
+                return i + 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 读取直到末尾, 不关闭流
+     *
+     * @param handler 每个分块回调一次, data只在回调期间有效
+     * @return 读取的总长度
+     */
+    public long chunk(InputStream in, ChunkHandler handler) throws IOException {
+        return chunk(Channels.newChannel(in), handler);
+    }
+
+    /**
+     * 读取直到末尾, 不关闭channel
+     *
+     * @param handler 每个分块回调一次, data只在回调期间有效
+     * @return 读取的总长度
+     */
+    public long chunk(ReadableByteChannel channel, ChunkHandler handler) throws IOException {
+        MessageDigest messageDigest = HashUtils.newDigest(algorithm);
+        byte[] buffer = new byte[maxSize << 1];
+        ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+        int start = 0;
+        int end = 0;
+        long offset = 0;
+        boolean eof = false;
+        while (true) {
+            // 保证缓冲区内至少有一个最大分块, 才能确定切分点
+            while (!eof && end - start < maxSize) {
+                if (end == buffer.length) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                wrapper.limit(buffer.length).position(end);
+                int read = channel.read(wrapper);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    end += read;
+                }
+            }
+            if (start == end) {
+                return offset;
+            }
+            int length = cut(buffer, start, end - start);
+            messageDigest.update(buffer, start, length);
+            Chunk chunk = new Chunk(offset, length, messageDigest.digest());
+            handler.handle(chunk, ByteBuffer.wrap(buffer, start, length).asReadOnlyBuffer());
+            start += length;
+            offset += length;
+        }
+    }
+
+    public List<Chunk> chunk(InputStream in) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        chunk(in, (chunk, data) -> chunks.add(chunk));
+        return chunks;
+    }
+
+    public List<Chunk> chunk(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<Chunk> chunks = new ArrayList<>();
+            chunk(channel, (chunk, data) -> chunks.add(chunk));
+            return chunks;
+        }
+    }
+
+    public List<Chunk> chunk(byte[] data) {
+        MessageDigest messageDigest = HashUtils.newDigest(algorithm);
+        List<Chunk> chunks = new ArrayList<>();
+        for (int offset = 0; offset < data.length; ) {
+            int length = cut(data, offset, data.length - offset);
+            messageDigest.update(data, offset, length);
+            chunks.add(new Chunk(offset, length, messageDigest.digest()));
+            offset += length;
+        }
+        return chunks;
+    }
+
+    @FunctionalInterface
+    public interface ChunkHandler {
+
+        /**
+         * @param chunk 分块信息
+         * @param data  分块内容(只读), 只在回调期间有效
+         */
+        void handle(Chunk chunk, ByteBuffer data) throws IOException;
+
+    }
+
+    /**
+     * @param offset 在输入中的起始位置
+     * @param length 长度
+     * @param digest 内容摘要
+     */
+    public record Chunk(long offset, int length, byte[] digest) {
+
+        public String toHexString() {
+            return HexUtils.encode(digest);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Chunk{offset=%s, length=%s, digest=%s}", offset, length, toHexString());
+        }
+
+    }
+
+    public static final class Builder {
+
+        private int minSize = DEFAULT_MIN_SIZE;
+
+        private int avgSize = DEFAULT_AVG_SIZE;
+
+        private int maxSize = DEFAULT_MAX_SIZE;
+
+        private int normalization = 2;
+
+        private String algorithm = HashUtils.SHA256;
+
+        private Builder() {
+        }
+
+        public Builder minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * @param avgSize 期望的平均长度, 向下取整为2的幂
+         */
+        public Builder avgSize(int avgSize) {
+            this.avgSize = avgSize;
+            return this;
+        }
+
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param normalization 归一化级别[0,3], 越大分块长度越集中, 0表示不归一化
+         */
+        public Builder normalization(int normalization) {
+            this.normalization = normalization;
+            return this;
+        }
+
+        /**
+         * @param algorithm 分块摘要算法, 见{@link HashUtils}
+         */
+        public Builder algorithm(String algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        public ContentDefinedChunker build() {
+            if (avgSize < WINDOW << 1) {
+                throw new IllegalArgumentException(String.format("avg size can't be less than %s", WINDOW << 1));
+            }
+            avgSize = Integer.highestOneBit(avgSize);
+            if (minSize < WINDOW || minSize > avgSize || maxSize < avgSize) {
+                throw new IllegalArgumentException(String.format(
+                    "require %s <= min size <= avg size <= max size, min: %s, avg: %s, max: %s",
+                    WINDOW, minSize, avgSize, maxSize));
+            }
+            if (maxSize > (1 << 30)) {
+                throw new IllegalArgumentException("max size can't be greater than 1GB");
+            }
+            int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+            if (normalization < 0 || normalization > 3 || bits - normalization < 1) {
+                throw new IllegalArgumentException(String.format("normalization range [0,3], got: %s", normalization));
+            }
+            // 提前校验算法
+            HashUtils.newDigest(algorithm);
+            return new ContentDefinedChunker(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,715 @@
+package io.github.honhimw;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * 非加密快速哈希: xxHash64, MurmurHash3 x64_128, CRC32C, 用于缓存key、分片路由等不需要抗碰撞攻击的场景.
+ * <p>
+ * {@link CharSequence}按UTF-16LE字节计算, 直接读取char, 不需要先编码为byte[];
+ * {@link ByteBuffer}读取position到limit之间的数据, 完成后position等于limit, 与{@link HashUtils#update(ByteBuffer)}一致
+ * <pre>{@code
+ * long h = FastHashUtils.xxHash64("user:1024");
+ * int shard = (int) Long.remainderUnsigned(h, 16);
+ *
+ * Checksum checksum = FastHashUtils.newXxHash64();
+ * checksum.update(bytes, 0, bytes.length);
+ * checksum.getValue();
+ * }</pre>
+ *
+ * @author hon_him
+ * @see HashUtils
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public class FastHashUtils {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // CRC32C只接受字节, CharSequence分块转换时的块大小(char)
+    private static final int CRC_CHAR_CHUNK = 256;
+
+    private FastHashUtils() {
+    }
+
+    // ---------------- xxHash64 ----------------
+
+    public static long xxHash64(byte[] bytes) {
+        return xxHash64(bytes, 0, bytes.length, 0);
+    }
+
+    public static long xxHash64(byte[] bytes, int offset, int length, long seed) {
+        checkBounds(bytes.length, offset, length);
+        int end = offset + length;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, (long) LONG_LE.get(bytes, offset));
+                v2 = round(v2, (long) LONG_LE.get(bytes, offset + 8));
+                v3 = round(v3, (long) LONG_LE.get(bytes, offset + 16));
+                v4 = round(v4, (long) LONG_LE.get(bytes, offset + 24));
+                offset += 32;
+            } while (offset <= limit);
+            h = converge(v1, v2, v3, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+        // 与tail(Input)相同, byte[]是最常见的输入, 单独展开避免包装对象及虚调用
+        while (offset + 8 <= end) {
+            h ^= round(0, (long) LONG_LE.get(bytes, offset));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+            offset += 8;
+        }
+        if (offset + 4 <= end) {
+            h ^= ((int) INT_LE.get(bytes, offset) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            offset += 4;
+        }
+        while (offset < end) {
+            h ^= (bytes[offset] & 0xFF) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+            offset++;
+        }
+        return avalanche(h);
+    }
+
+    public static long xxHash64(ByteBuffer buffer) {
+        return xxHash64(buffer, 0);
+    }
+
+    public static long xxHash64(ByteBuffer buffer, long seed) {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            long hash = xxHash64(buffer.array(), buffer.arrayOffset() + buffer.position(), length, seed);
+            buffer.position(buffer.limit());
+            return hash;
+        }
+        long hash = xxHash64(Input.of(buffer), 0, length, seed);
+        buffer.position(buffer.limit());
+        return hash;
+    }
+
+    public static long xxHash64(CharSequence cs) {
+        return xxHash64(cs, 0);
+    }
+
+    public static long xxHash64(CharSequence cs, long seed) {
+        return xxHash64(Input.of(cs), 0, cs.length() << 1, seed);
+    }
+
+    /**
+     * @return 流式xxHash64, {@link Checksum#getValue()}返回64位哈希值
+     */
+    public static XxHash64 newXxHash64() {
+        return new XxHash64(0);
+    }
+
+    public static XxHash64 newXxHash64(long seed) {
+        return new XxHash64(seed);
+    }
+
+    // ---------------- MurmurHash3 x64_128 ----------------
+
+    /**
+     * @return 128位结果的前64位, 与Guava {@code Hashing.murmur3_128().hashBytes(bytes).asLong()}一致
+     */
+    public static long murmur3(byte[] bytes) {
+        return murmur3(bytes, 0, bytes.length, 0);
+    }
+
+    public static long murmur3(byte[] bytes, int offset, int length, int seed) {
+        checkBounds(bytes.length, offset, length);
+        long h1 = seed & 0xFFFFFFFFL;
+        long h2 = h1;
+        int end = offset + length;
+        int limit = end - 16;
+        while (offset <= limit) {
+            h1 ^= Murmur3.mixK1((long) LONG_LE.get(bytes, offset));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52DCE729;
+            h2 ^= Murmur3.mixK2((long) LONG_LE.get(bytes, offset + 8));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495AB5;
+            offset += 16;
+        }
+        int remaining = end - offset;
+        if (remaining > 0) {
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = end - 1; i >= offset + 8; i--) {
+                k2 = k2 << 8 | (bytes[i] & 0xFF);
+            }
+            for (int i = Math.min(end, offset + 8) - 1; i >= offset; i--) {
+                k1 = k1 << 8 | (bytes[i] & 0xFF);
+            }
+            if (remaining > 8) {
+                h2 ^= Murmur3.mixK2(k2);
+            }
+            h1 ^= Murmur3.mixK1(k1);
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        return h1 + h2;
+    }
+
+    public static long murmur3(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            long hash = murmur3(buffer.array(), buffer.arrayOffset() + buffer.position(), length, 0);
+            buffer.position(buffer.limit());
+            return hash;
+        }
+        long hash = new Murmur3(0).update(Input.of(buffer), 0, length).h1();
+        buffer.position(buffer.limit());
+        return hash;
+    }
+
+    public static long murmur3(CharSequence cs) {
+        return new Murmur3(0).update(Input.of(cs), 0, cs.length() << 1).h1();
+    }
+
+    /**
+     * @return 完整的128位结果(16字节, 小端)
+     */
+    public static byte[] murmur3Bytes(byte[] bytes) {
+        checkBounds(bytes.length, 0, bytes.length);
+        return new Murmur3(0).update(Input.of(bytes, 0), 0, bytes.length).digest();
+    }
+
+    /**
+     * @return 流式MurmurHash3 x64_128, {@link Checksum#getValue()}返回前64位
+     */
+    public static Murmur3 newMurmur3() {
+        return new Murmur3(0);
+    }
+
+    public static Murmur3 newMurmur3(int seed) {
+        return new Murmur3(seed);
+    }
+
+    // ---------------- CRC32C ----------------
+
+    /**
+     * @return JDK {@link CRC32C}, 通常由CPU指令加速
+     */
+    public static long crc32c(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    public static long crc32c(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    public static long crc32c(CharSequence cs) {
+        CRC32C crc = new CRC32C();
+        update(crc, cs);
+        return crc.getValue();
+    }
+
+    public static CRC32C newCrc32c() {
+        return new CRC32C();
+    }
+
+    /**
+     * 按UTF-16LE分块写入任意{@link Checksum}
+     */
+    public static void update(Checksum checksum, CharSequence cs) {
+        int length = cs.length();
+        byte[] chunk = new byte[Math.min(length, CRC_CHAR_CHUNK) << 1];
+        for (int i = 0; i < length; ) {
+            int n = Math.min(length - i, CRC_CHAR_CHUNK);
+            for (int j = 0, k = 0; j < n; j++) {
+                char c = cs.charAt(i + j);
+                chunk[k++] = (byte) c;
+                chunk[k++] = (byte) (c >>> 8);
+            }
+            checksum.update(chunk, 0, n << 1);
+            i += n;
+        }
+    }
+
+    // ---------------- implementation ----------------
+
+    private static long xxHash64(Input in, int offset, int length, long seed) {
+        int end = offset + length;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, in.getLong(offset));
+                v2 = round(v2, in.getLong(offset + 8));
+                v3 = round(v3, in.getLong(offset + 16));
+                v4 = round(v4, in.getLong(offset + 24));
+                offset += 32;
+            } while (offset <= limit);
+            h = converge(v1, v2, v3, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+        return avalanche(tail(h, in, offset, end));
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * P1 + P4;
+    }
+
+    private static long converge(long v1, long v2, long v3, long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = mergeRound(h, v1);
+        h = mergeRound(h, v2);
+        h = mergeRound(h, v3);
+        return mergeRound(h, v4);
+    }
+
+    private static long tail(long h, Input in, int offset, int end) {
+        while (offset + 8 <= end) {
+            h ^= round(0, in.getLong(offset));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+            offset += 8;
+        }
+        if (offset + 4 <= end) {
+            h ^= (in.getInt(offset) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            offset += 4;
+        }
+        while (offset < end) {
+            h ^= in.getByte(offset) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+            offset++;
+        }
+        return h;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        return h ^ (h >>> 32);
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        return k ^ (k >>> 33);
+    }
+
+    private static void checkBounds(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException(
+                String.format("offset: %s, length: %s, array length: %s", offset, length, arrayLength));
+        }
+    }
+
+    /**
+     * 小端读取, 下标为相对起点的字节偏移
+     */
+    private abstract static sealed class Input {
+
+        static Input of(byte[] bytes, int offset) {
+            return new ArrayInput(bytes, offset);
+        }
+
+        static Input of(ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                return new ArrayInput(buffer.array(), buffer.arrayOffset() + buffer.position());
+            }
+            return new BufferInput(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), buffer.position());
+        }
+
+        static Input of(CharSequence cs) {
+            return new CharsInput(cs);
+        }
+
+        abstract long getLong(int index);
+
+        abstract int getInt(int index);
+
+        /**
+         * @return 无符号字节
+         */
+        abstract int getByte(int index);
+
+    }
+
+    private static final class ArrayInput extends Input {
+
+        private final byte[] bytes;
+
+        private final int base;
+
+        private ArrayInput(byte[] bytes, int base) {
+            this.bytes = bytes;
+            this.base = base;
+        }
+
+        @Override
+        long getLong(int index) {
+            return (long) LONG_LE.get(bytes, base + index);
+        }
+
+        @Override
+        int getInt(int index) {
+            return (int) INT_LE.get(bytes, base + index);
+        }
+
+        @Override
+        int getByte(int index) {
+            return bytes[base + index] & 0xFF;
+        }
+
+    }
+
+    private static final class BufferInput extends Input {
+
+        private final ByteBuffer buffer;
+
+        private final int base;
+
+        private BufferInput(ByteBuffer buffer, int base) {
+            this.buffer = buffer;
+            this.base = base;
+        }
+
+        @Override
+        long getLong(int index) {
+            return buffer.getLong(base + index);
+        }
+
+        @Override
+        int getInt(int index) {
+            return buffer.getInt(base + index);
+        }
+
+        @Override
+        int getByte(int index) {
+            return buffer.get(base + index) & 0xFF;
+        }
+
+    }
+
+    /**
+     * 每个char视为两个小端字节. 流式处理时前面写入了奇数个字节, 分组的起始下标会是奇数, 此时跨char拼接
+     */
+    private static final class CharsInput extends Input {
+
+        private final CharSequence cs;
+
+        private CharsInput(CharSequence cs) {
+            this.cs = cs;
+        }
+
+        @Override
+        long getLong(int index) {
+            int i = index >>> 1;
+            if ((index & 1) == 0) {
+                return cs.charAt(i)
+                       | (long) cs.charAt(i + 1) << 16
+                       | (long) cs.charAt(i + 2) << 32
+                       | (long) cs.charAt(i + 3) << 48;
+            }
+            return cs.charAt(i) >>> 8
+                   | (long) cs.charAt(i + 1) << 8
+                   | (long) cs.charAt(i + 2) << 24
+                   | (long) cs.charAt(i + 3) << 40
+                   | (long) (cs.charAt(i + 4) & 0xFF) << 56;
+        }
+
+        @Override
+        int getInt(int index) {
+            int i = index >>> 1;
+            if ((index & 1) == 0) {
+                return cs.charAt(i) | cs.charAt(i + 1) << 16;
+            }
+            return cs.charAt(i) >>> 8
+                   | cs.charAt(i + 1) << 8
+                   | (cs.charAt(i + 2) & 0xFF) << 24;
+        }
+
+        @Override
+        int getByte(int index) {
+            char c = cs.charAt(index >>> 1);
+            return (index & 1) == 0 ? c & 0xFF : c >>> 8;
+        }
+
+    }
+
+    /**
+     * 流式处理的公共部分: 不足一个分组的数据暂存在buffer
+     */
+    private abstract static class Streaming implements Checksum {
+
+        protected final byte[] buffer;
+
+        private final Input bufferInput;
+
+        protected int buffered;
+
+        protected long total;
+
+        private Streaming(int blockSize) {
+            this.buffer = new byte[blockSize];
+            this.bufferInput = Input.of(buffer, 0);
+        }
+
+        @Override
+        public void update(int b) {
+            buffer[buffered++] = (byte) b;
+            total++;
+            if (buffered == buffer.length) {
+                block(bufferInput, 0);
+                buffered = 0;
+            }
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            checkBounds(b.length, off, len);
+            update(Input.of(b, off), 0, len);
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            int length = buffer.remaining();
+            update(Input.of(buffer), 0, length);
+            buffer.position(buffer.limit());
+        }
+
+        /**
+         * 按UTF-16LE写入
+         */
+        public void update(CharSequence cs) {
+            update(Input.of(cs), 0, cs.length() << 1);
+        }
+
+        Streaming update(Input in, int offset, int length) {
+            total += length;
+            int blockSize = buffer.length;
+            if (buffered > 0) {
+                while (buffered < blockSize && length > 0) {
+                    buffer[buffered++] = (byte) in.getByte(offset++);
+                    length--;
+                }
+                if (buffered < blockSize) {
+                    return this;
+                }
+                block(bufferInput, 0);
+                buffered = 0;
+            }
+            while (length >= blockSize) {
+                block(in, offset);
+                offset += blockSize;
+                length -= blockSize;
+            }
+            while (length-- > 0) {
+                buffer[buffered++] = (byte) in.getByte(offset++);
+            }
+            return this;
+        }
+
+        final Input bufferInput() {
+            return bufferInput;
+        }
+
+        abstract void block(Input in, int offset);
+
+        @Override
+        public void reset() {
+            buffered = 0;
+            total = 0;
+        }
+
+    }
+
+    /**
+     * 流式xxHash64
+     */
+    public static final class XxHash64 extends Streaming {
+
+        private final long seed;
+
+        private long v1, v2, v3, v4;
+
+        private XxHash64(long seed) {
+            super(32);
+            this.seed = seed;
+            reset();
+        }
+
+        @Override
+        void block(Input in, int offset) {
+            v1 = round(v1, in.getLong(offset));
+            v2 = round(v2, in.getLong(offset + 8));
+            v3 = round(v3, in.getLong(offset + 16));
+            v4 = round(v4, in.getLong(offset + 24));
+        }
+
+        @Override
+        public long getValue() {
+            long h = total >= 32 ? converge(v1, v2, v3, v4) : seed + P5;
+            h += total;
+            return avalanche(tail(h, bufferInput(), 0, buffered));
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            v1 = seed + P1 + P2;
+            v2 = seed + P2;
+            v3 = seed;
+            v4 = seed - P1;
+        }
+
+    }
+
+    /**
+     * 流式MurmurHash3 x64_128
+     */
+    public static final class Murmur3 extends Streaming {
+
+        private final long seed;
+
+        private long h1, h2;
+
+        private Murmur3(int seed) {
+            super(16);
+            this.seed = seed & 0xFFFFFFFFL;
+            reset();
+        }
+
+        @Override
+        void block(Input in, int offset) {
+            long k1 = in.getLong(offset);
+            long k2 = in.getLong(offset + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52DCE729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
+        }
+
+        @Override
+        Murmur3 update(Input in, int offset, int length) {
+            super.update(in, offset, length);
+            return this;
+        }
+
+        /**
+         * @return 128位结果的前64位
+         */
+        @Override
+        public long getValue() {
+            return h1();
+        }
+
+        /**
+         * @return 完整的128位结果(16字节, 小端), 不改变当前状态
+         */
+        public byte[] digest() {
+            long[] hash = finish();
+            ByteBuffer bytes = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.putLong(hash[0]).putLong(hash[1]);
+            return bytes.array();
+        }
+
+        private long h1() {
+            return finish()[0];
+        }
+
+        private long[] finish() {
+            long a = h1;
+            long b = h2;
+            if (buffered > 0) {
+                Input in = bufferInput();
+                long k1 = 0;
+                long k2 = 0;
+                for (int i = buffered - 1; i >= 8; i--) {
+                    k2 = k2 << 8 | in.getByte(i);
+                }
+                for (int i = Math.min(buffered, 8) - 1; i >= 0; i--) {
+                    k1 = k1 << 8 | in.getByte(i);
+                }
+                if (buffered > 8) {
+                    b ^= mixK2(k2);
+                }
+                a ^= mixK1(k1);
+            }
+            a ^= total;
+            b ^= total;
+            a += b;
+            b += a;
+            a = fmix64(a);
+            b = fmix64(b);
+            a += b;
+            b += a;
+            return new long[]{a, b};
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            h1 = seed;
+            h2 = seed;
+        }
+
+    }
+
+}
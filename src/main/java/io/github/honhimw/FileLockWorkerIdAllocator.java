@@ -0,0 +1,156 @@
+package io.github.honhimw;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * 基于文件锁的机器节点id分配, 每个id对应目录下的一个文件, 持有该文件的排他锁即持有该id.
+ * <p>
+ * 进程退出后操作系统自动释放文件锁, 下次分配时即可回收; 心跳向文件写入pid与时间, 便于排查.
+ * 多台机器共享同一目录(如挂载的共享存储)时需确认该文件系统支持文件锁
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public class FileLockWorkerIdAllocator implements WorkerIdAllocator {
+
+    /**
+     * 本进程已持有的锁文件, 部分系统上关闭同一文件的任意channel会释放进程在该文件上的所有锁, 因此不能重复打开
+     */
+    private static final Set<Path> HELD = ConcurrentHashMap.newKeySet();
+
+    private final Path directory;
+
+    public FileLockWorkerIdAllocator(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public Lease lease(long maxWorkerId) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (long workerId = 0; workerId <= maxWorkerId; workerId++) {
+            FileLockLease lease = tryLock(workerId);
+            if (lease != null) {
+                lease.heartbeat();
+                return lease;
+            }
+        }
+        throw new IllegalStateException(
+            String.format("no worker id available in [0,%s] under %s", maxWorkerId, directory));
+    }
+
+    private FileLockLease tryLock(long workerId) {
+        Path file = directory.resolve("worker-" + workerId + ".lock").toAbsolutePath().normalize();
+        if (!HELD.add(file)) {
+            return null;
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return new FileLockLease(workerId, file, channel, lock);
+            }
+        } catch (OverlappingFileLockException ignored) {
+            // 同一进程内已持有
+        } catch (IOException e) {
+            closeQuietly(channel);
+            HELD.remove(file);
+            throw new UncheckedIOException(e);
+        }
+        closeQuietly(channel);
+        HELD.remove(file);
+        return null;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class FileLockLease implements Lease {
+
+        private final long workerId;
+
+        private final Path file;
+
+        private final FileChannel channel;
+
+        private final FileLock lock;
+
+        private FileLockLease(long workerId, Path file, FileChannel channel, FileLock lock) {
+            this.workerId = workerId;
+            this.file = file;
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        @Override
+        public long getWorkerId() {
+            return workerId;
+        }
+
+        @Override
+        public synchronized boolean heartbeat() {
+            if (!lock.isValid()) {
+                return false;
+            }
+            try {
+                byte[] content = String.format("%s %s%n", ProcessHandle.current().pid(), System.currentTimeMillis())
+                    .getBytes(UTF_8);
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(content), 0);
+                channel.force(false);
+            } catch (IOException ignored) {
+                // 心跳内容仅用于排查, 写入失败不影响锁的有效性
+            }
+            return lock.isValid();
+        }
+
+        @Override
+        public boolean isValid() {
+            return lock.isValid();
+        }
+
+        @Override
+        public synchronized void release() {
+            try {
+                if (lock.isValid()) {
+                    lock.release();
+                }
+            } catch (IOException ignored) {
+            } finally {
+                if (channel.isOpen()) {
+                    closeQuietly(channel);
+                    HELD.remove(file);
+                }
+            }
+        }
+
+    }
+
+}
@@ -1,11 +1,28 @@
 package io.github.honhimw;
 
 import java.io.*;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.zip.*;
 
 /**
+ * gzip压缩与解压.
+ * <p>
+ * 开启{@link #setPooled(boolean) pooled}模式后, 每个线程复用同一组{@link Deflater}/{@link Inflater}(native zlib)和64KB缓冲区,
+ * 手动读写gzip头和尾部, 不再创建{@link GZIPOutputStream}/{@link GZIPInputStream};
+ * {@code byte[]}版本的输出直接写入预估长度的数组(压缩按deflateBound, 解压按尾部记录的原始长度ISIZE), 不经过{@link ByteArrayOutputStream}.
+ * 输出与JDK实现一致. 同一线程嵌套调用(如输入流的read中再次压缩)时, 内层调用退回非pooled实现.
+ * <p>
+ * 大文件可以使用{@link #compressParallel(InputStream, OutputStream)}多线程压缩(与pigz相同的方式), 输出仍是单个标准gzip member
+ *
  * @author hon_him
+ * @see CompressionUtils
  * @since 2022-06-01
  */
 @SuppressWarnings("unused")
@@ -13,10 +30,70 @@ public class GZipUtils {
 
     public static final int BUFFER = 1024;
 
+    /**
+     * pooled模式下每个线程的缓冲区大小
+     */
+    public static final int POOLED_BUFFER = 64 * 1024;
+
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * 与{@link GZIPOutputStream}相同: 无文件名、无修改时间, OS为unknown(255)
+     */
+    private static final byte[] HEADER = {0x1F, (byte) 0x8B, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+
+    private static final int TRAILER_LENGTH = 8;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /**
+     * deflate的最大压缩比约为1032:1, 用于限制按ISIZE预分配的长度, 防止伪造的ISIZE导致超大分配
+     */
+    private static final int MAX_RATIO = 1032;
+
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * 并行压缩的默认分块大小, 与pigz相同
+     */
+    public static final int PARALLEL_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * deflate的窗口大小, 并行压缩时每个分块以前一个分块的最后32KB作为预置字典
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final ThreadLocal<Pool> POOL = ThreadLocal.withInitial(Pool::new);
+
+    private static volatile boolean pooled = false;
+
+    /**
+     * 开启后每个线程持有一组native zlib对象(压缩约256KB, 解压约40KB)和缓冲区, 直到线程结束;
+     * 适合固定线程数的线程池, 不适合大量短生命周期的线程
+     */
+    public static void setPooled(boolean pooled) {
+        GZipUtils.pooled = pooled;
+    }
+
+    public static boolean isPooled() {
+        return pooled;
+    }
+
     /**
      * compress
      */
     public static byte[] compress(byte[] data) throws IOException {
+        Pool pool = acquire();
+        if (pool != null) {
+            try {
+                return compress(pool, data);
+            } finally {
+                pool.release();
+            }
+        }
         ByteArrayInputStream baips = new ByteArrayInputStream(data);
         ByteArrayOutputStream baops = new ByteArrayOutputStream();
         compress(baips, baops);
@@ -28,6 +105,15 @@ public class GZipUtils {
     }
 
     public static void compress(InputStream ips, OutputStream ops) throws IOException {
+        Pool pool = acquire();
+        if (pool != null) {
+            try {
+                compress(pool, ips, ops);
+                return;
+            } finally {
+                pool.release();
+            }
+        }
         GZIPOutputStream gzops = new GZIPOutputStream(ops);
         int count;
         byte[] data = new byte[BUFFER];
@@ -43,6 +129,14 @@ public class GZipUtils {
      * decompress
      */
     public static byte[] decompress(byte[] data) throws IOException {
+        Pool pool = acquire();
+        if (pool != null) {
+            try {
+                return decompress(pool, data);
+            } finally {
+                pool.release();
+            }
+        }
         ByteArrayInputStream bais = new ByteArrayInputStream(data);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         decompress(bais, baos);
@@ -54,6 +148,15 @@ public class GZipUtils {
     }
 
     public static void decompress(InputStream is, OutputStream os) throws IOException {
+        Pool pool = acquire();
+        if (pool != null) {
+            try {
+                decompress(pool, is, os);
+                return;
+            } finally {
+                pool.release();
+            }
+        }
         GZIPInputStream gzips = new GZIPInputStream(is);
         int count;
         byte[] data = new byte[BUFFER];
@@ -63,4 +166,655 @@ public class GZipUtils {
         gzips.close();
     }
 
+    // ---------------- parallel ----------------
+
+    /**
+     * 使用{@link ForkJoinPool#commonPool()}并行压缩, 默认压缩级别, 分块大小{@link #PARALLEL_BLOCK_SIZE}
+     */
+    public static void compressParallel(InputStream ips, OutputStream ops) throws IOException {
+        compressParallel(ips, ops, Deflater.DEFAULT_COMPRESSION, PARALLEL_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行压缩, 完成后关闭ops.
+     * <p>
+     * 输入按blockSize分块, 每块在executor中独立deflate, 以前一块的最后32KB作为预置字典, 压缩率与单线程接近;
+     * 非最后一块以SYNC_FLUSH结束(按字节对齐, 可以直接拼接), 最后一块以FINISH结束.
+     * 各块的CRC32在worker中计算, 按顺序通过{@link #crc32Combine(long, long, long)}合并.
+     * 同时处理中的分块不超过CPU核数的2倍, 内存占用约为{@code 4 * cores * blockSize};
+     * 分块的输入输出缓冲区和{@link Deflater}在本次调用内循环复用(reset后重新设置字典), 数量不超过同时处理的分块数
+     *
+     * @param level     压缩级别[0,9], -1为默认级别(6)
+     * @param blockSize 分块大小, 不能小于32KB
+     * @param executor  执行deflate的线程池
+     */
+    public static void compressParallel(InputStream ips, OutputStream ops, int level, int blockSize, Executor executor) throws IOException {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(String.format("deflate level range [-1,9], got: %s", level));
+        }
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException(String.format("block size can't be less than %s, got: %s", DICTIONARY_SIZE, blockSize));
+        }
+        int maxPending = Runtime.getRuntime().availableProcessors() << 1;
+        Deque<Future<Block>> pending = new ArrayDeque<>();
+        BlockResources resources = new BlockResources(level, blockSize);
+        ops.write(HEADER);
+        long crc = 0;
+        long total = 0;
+        try {
+            byte[] previous = null;
+            byte[] current = resources.input();
+            int length = ips.readNBytes(current, 0, blockSize);
+            // 最近写出的分块的输入, 下一块写出后才不再被用作字典
+            byte[] written = null;
+            while (true) {
+                // 预读下一块, 读不到数据时当前块就是最后一块
+                byte[] next = null;
+                int nextLength = 0;
+                if (length == blockSize) {
+                    next = resources.input();
+                    nextLength = ips.readNBytes(next, 0, blockSize);
+                }
+                boolean last = nextLength == 0;
+                FutureTask<Block> task = new FutureTask<>(new BlockTask(resources, previous, current, length, last));
+                executor.execute(task);
+                pending.add(task);
+                while (pending.size() >= maxPending || last && !pending.isEmpty()) {
+                    Block block = await(pending.poll());
+                    ops.write(block.data, 0, block.length);
+                    resources.recycleOutput(block.data);
+                    if (written != null) {
+                        resources.recycleInput(written);
+                    }
+                    written = block.input;
+                    crc = crc32Combine(crc, block.crc, block.inputLength);
+                    total += block.inputLength;
+                }
+                if (last) {
+                    break;
+                }
+                previous = current;
+                current = next;
+                length = nextLength;
+            }
+        } finally {
+            for (Future<Block> future : pending) {
+                future.cancel(false);
+            }
+            resources.close();
+        }
+        byte[] trailer = new byte[TRAILER_LENGTH];
+        INT_LE.set(trailer, 0, (int) crc);
+        INT_LE.set(trailer, 4, (int) total);
+        ops.write(trailer);
+        ops.flush();
+        ops.close();
+    }
+
+    private static Block await(Future<Block> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for block compression");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 合并两段数据的CRC32, 移植自zlib的crc32_combine
+     *
+     * @param crc1    第一段的CRC32
+     * @param crc2    第二段的CRC32
+     * @param length2 第二段的长度
+     * @return 两段拼接后的CRC32
+     */
+    public static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        // odd为移位1个bit的GF(2)矩阵, 反复平方得到移位2^n个0字节的矩阵
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>>= 1;
+        } while (length2 != 0);
+        return (crc1 ^ crc2) & 0xFFFFFFFFL;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * @param data        压缩后的数据
+     * @param length      data的有效长度
+     * @param crc         原始数据的CRC32
+     * @param input       原始数据所在的缓冲区
+     * @param inputLength 原始数据长度
+     */
+    private record Block(byte[] data, int length, long crc, byte[] input, int inputLength) {
+    }
+
+    /**
+     * 一次并行压缩内复用的缓冲区和{@link Deflater}. 输入缓冲区只由调用线程借出和归还, 输出缓冲区和Deflater由worker借出、调用线程或worker归还
+     */
+    private static final class BlockResources {
+
+        private final int level;
+
+        private final int blockSize;
+
+        // SYNC_FLUSH额外输出一个空的stored块
+        private final int outputSize;
+
+        private final Deque<byte[]> inputs = new ArrayDeque<>();
+
+        private final Queue<byte[]> outputs = new ConcurrentLinkedQueue<>();
+
+        private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+        private BlockResources(int level, int blockSize) {
+            this.level = level;
+            this.blockSize = blockSize;
+            this.outputSize = (int) Math.min(deflateBound(blockSize) + 16, MAX_ARRAY_LENGTH);
+        }
+
+        private byte[] input() {
+            byte[] input = inputs.poll();
+            return input != null ? input : new byte[blockSize];
+        }
+
+        private void recycleInput(byte[] input) {
+            inputs.push(input);
+        }
+
+        private byte[] output() {
+            byte[] output = outputs.poll();
+            return output != null ? output : new byte[outputSize];
+        }
+
+        private void recycleOutput(byte[] output) {
+            outputs.offer(output);
+        }
+
+        private Deflater deflater() {
+            Deflater deflater = deflaters.poll();
+            return deflater != null ? deflater : new Deflater(level, true);
+        }
+
+        private void recycle(Deflater deflater) {
+            deflaters.offer(deflater);
+        }
+
+        /**
+         * 释放已归还的Deflater, 出错时仍在执行的分块稍后归还的Deflater由GC清理
+         */
+        private void close() {
+            Deflater deflater;
+            while ((deflater = deflaters.poll()) != null) {
+                deflater.end();
+            }
+        }
+
+    }
+
+    private static final class BlockTask implements Callable<Block> {
+
+        private final BlockResources resources;
+
+        private final byte[] previous;
+
+        private final byte[] input;
+
+        private final int length;
+
+        private final boolean last;
+
+        private BlockTask(BlockResources resources, byte[] previous, byte[] input, int length, boolean last) {
+            this.resources = resources;
+            this.previous = previous;
+            this.input = input;
+            this.length = length;
+            this.last = last;
+        }
+
+        @Override
+        public Block call() {
+            CRC32 crc = new CRC32();
+            crc.update(input, 0, length);
+            Deflater deflater = resources.deflater();
+            try {
+                if (previous != null) {
+                    deflater.setDictionary(previous, previous.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+                }
+                deflater.setInput(input, 0, length);
+                byte[] out = resources.output();
+                int position = 0;
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        if (position == out.length) {
+                            out = Arrays.copyOf(out, grow(out.length));
+                        }
+                        position += deflater.deflate(out, position, out.length - position);
+                    }
+                } else {
+                    // 返回值等于剩余空间时可能还有数据未输出
+                    int n;
+                    do {
+                        if (position == out.length) {
+                            out = Arrays.copyOf(out, grow(out.length));
+                        }
+                        n = deflater.deflate(out, position, out.length - position, Deflater.SYNC_FLUSH);
+                        position += n;
+                    } while (position == out.length);
+                }
+                return new Block(out, position, crc.getValue(), input, length);
+            } finally {
+                // reset同时释放对输入缓冲区的引用
+                deflater.reset();
+                resources.recycle(deflater);
+            }
+        }
+
+    }
+
+    // ---------------- pooled ----------------
+
+    /**
+     * @return 未开启pooled模式或当前线程的Pool正在使用时返回null
+     */
+    private static Pool acquire() {
+        if (!pooled) {
+            return null;
+        }
+        Pool pool = POOL.get();
+        if (pool.inUse) {
+            return null;
+        }
+        pool.inUse = true;
+        return pool;
+    }
+
+    private static byte[] compress(Pool pool, byte[] data) {
+        Deflater deflater = pool.deflater();
+        CRC32 crc = pool.crc;
+        crc.update(data);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] out = new byte[(int) Math.min(HEADER.length + deflateBound(data.length) + TRAILER_LENGTH, MAX_ARRAY_LENGTH)];
+        System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+        int position = HEADER.length;
+        while (!deflater.finished()) {
+            if (out.length - TRAILER_LENGTH - position == 0) {
+                out = Arrays.copyOf(out, grow(out.length));
+            }
+            position += deflater.deflate(out, position, out.length - TRAILER_LENGTH - position);
+        }
+        INT_LE.set(out, position, (int) crc.getValue());
+        INT_LE.set(out, position + 4, (int) deflater.getBytesRead());
+        position += TRAILER_LENGTH;
+        return position == out.length ? out : Arrays.copyOf(out, position);
+    }
+
+    private static void compress(Pool pool, InputStream ips, OutputStream ops) throws IOException {
+        Deflater deflater = pool.deflater();
+        CRC32 crc = pool.crc;
+        byte[] input = pool.input;
+        byte[] output = pool.output;
+        ops.write(HEADER);
+        int count;
+        while ((count = ips.read(input, 0, input.length)) != -1) {
+            crc.update(input, 0, count);
+            deflater.setInput(input, 0, count);
+            while (!deflater.needsInput()) {
+                int n = deflater.deflate(output, 0, output.length);
+                if (n > 0) {
+                    ops.write(output, 0, n);
+                }
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(output, 0, output.length);
+            ops.write(output, 0, n);
+        }
+        INT_LE.set(output, 0, (int) crc.getValue());
+        INT_LE.set(output, 4, (int) deflater.getBytesRead());
+        ops.write(output, 0, TRAILER_LENGTH);
+        ops.flush();
+        ops.close();
+    }
+
+    private static byte[] decompress(Pool pool, byte[] data) throws IOException {
+        // ISIZE为最后一个member的原始长度(模2^32), 单member时即为输出长度
+        long size = data.length >= HEADER.length + TRAILER_LENGTH ? (int) INT_LE.get(data, data.length - 4) & 0xFFFFFFFFL : 0;
+        size = Math.min(Math.min(size, (long) data.length * MAX_RATIO), MAX_ARRAY_LENGTH);
+        ArraySink sink = new ArraySink((int) size);
+        inflate(pool, new Source(null, data, data.length), sink);
+        return sink.toByteArray();
+    }
+
+    private static void decompress(Pool pool, InputStream is, OutputStream os) throws IOException {
+        StreamSink sink = new StreamSink(os, pool.output);
+        inflate(pool, new Source(is, pool.input, 0), sink);
+        sink.drain();
+        is.close();
+    }
+
+    /**
+     * 依次解压所有member, 与{@link GZIPInputStream}相同, 最后一个member之后不是gzip头的数据被忽略
+     */
+    private static void inflate(Pool pool, Source src, Sink sink) throws IOException {
+        Inflater inflater = pool.inflater();
+        CRC32 crc = pool.crc;
+        readHeader(src, crc);
+        do {
+            inflater.reset();
+            crc.reset();
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (!src.fill()) {
+                        throw new EOFException("Unexpected end of ZLIB input stream");
+                    }
+                    inflater.setInput(src.buf, src.position, src.limit - src.position);
+                    src.position = src.limit;
+                }
+                if (sink.position == sink.buf.length) {
+                    sink.drain();
+                }
+                int n;
+                try {
+                    n = inflater.inflate(sink.buf, sink.position, sink.buf.length - sink.position);
+                } catch (DataFormatException e) {
+                    String message = e.getMessage();
+                    throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+                }
+                crc.update(sink.buf, sink.position, n);
+                sink.position += n;
+            }
+            // 交还inflater未使用的输入, 即尾部及之后的数据
+            src.position -= inflater.getRemaining();
+            long expectedCrc = readUInt(src);
+            long expectedSize = readUInt(src);
+            if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+        } while (nextMember(src, crc));
+    }
+
+    private static boolean nextMember(Source src, CRC32 crc) throws IOException {
+        if (!src.fill()) {
+            return false;
+        }
+        try {
+            readHeader(src, crc);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void readHeader(Source src, CRC32 crc) throws IOException {
+        crc.reset();
+        if (readUByte(src, crc) != 0x1F || readUByte(src, crc) != 0x8B) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (readUByte(src, crc) != Deflater.DEFLATED) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = readUByte(src, crc);
+        // MTIME(4) XFL(1) OS(1)
+        for (int i = 0; i < 6; i++) {
+            readUByte(src, crc);
+        }
+        if ((flags & FEXTRA) != 0) {
+            int length = readUByte(src, crc) | readUByte(src, crc) << 8;
+            for (int i = 0; i < length; i++) {
+                readUByte(src, crc);
+            }
+        }
+        if ((flags & FNAME) != 0) {
+            while (readUByte(src, crc) != 0) {
+                // skip
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (readUByte(src, crc) != 0) {
+                // skip
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            int expected = (int) crc.getValue() & 0xFFFF;
+            if ((readUByte(src, crc) | readUByte(src, crc) << 8) != expected) {
+                throw new ZipException("Corrupt GZIP header");
+            }
+        }
+    }
+
+    private static int readUByte(Source src, CRC32 crc) throws IOException {
+        if (!src.fill()) {
+            throw new EOFException();
+        }
+        int b = src.buf[src.position++] & 0xFF;
+        crc.update(b);
+        return b;
+    }
+
+    private static long readUInt(Source src) throws IOException {
+        if (src.limit - src.position >= 4) {
+            long value = (int) INT_LE.get(src.buf, src.position) & 0xFFFFFFFFL;
+            src.position += 4;
+            return value;
+        }
+        long value = 0;
+        for (int i = 0; i < 4; i++) {
+            if (!src.fill()) {
+                throw new EOFException();
+            }
+            value |= (long) (src.buf[src.position++] & 0xFF) << (i << 3);
+        }
+        return value;
+    }
+
+    /**
+     * zlib的deflateBound
+     */
+    private static long deflateBound(long length) {
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13;
+    }
+
+    private static int grow(int length) {
+        long grown = Math.max(length + (long) (length >>> 1), 64);
+        if (length == MAX_ARRAY_LENGTH) {
+            throw new OutOfMemoryError("Required array size too large");
+        }
+        return (int) Math.min(grown, MAX_ARRAY_LENGTH);
+    }
+
+    /**
+     * 线程独占, 通过inUse防止重入
+     */
+    private static final class Pool {
+
+        private final CRC32 crc = new CRC32();
+
+        private final byte[] input = new byte[POOLED_BUFFER];
+
+        private final byte[] output = new byte[POOLED_BUFFER];
+
+        private Deflater deflater;
+
+        private Inflater inflater;
+
+        private boolean inUse;
+
+        /**
+         * 压缩和解压的native对象按需创建, 只解压的线程不持有Deflater
+         */
+        private Deflater deflater() {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+            return deflater;
+        }
+
+        private Inflater inflater() {
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+            return inflater;
+        }
+
+        /**
+         * 重置状态, 同时释放对调用方数组的引用; 异常中断时也能保证下次使用前是干净的
+         */
+        private void release() {
+            if (deflater != null) {
+                deflater.reset();
+            }
+            if (inflater != null) {
+                inflater.reset();
+            }
+            crc.reset();
+            inUse = false;
+        }
+
+    }
+
+    private static final class Source {
+
+        private final InputStream in;
+
+        private final byte[] buf;
+
+        private int position;
+
+        private int limit;
+
+        private Source(InputStream in, byte[] buf, int limit) {
+            this.in = in;
+            this.buf = buf;
+            this.limit = limit;
+        }
+
+        /**
+         * 缓冲区为空时从流中读取
+         *
+         * @return 是否还有数据
+         */
+        private boolean fill() throws IOException {
+            if (position < limit) {
+                return true;
+            }
+            if (in == null) {
+                return false;
+            }
+            int read;
+            do {
+                read = in.read(buf, 0, buf.length);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+    }
+
+    private abstract static class Sink {
+
+        protected byte[] buf;
+
+        protected int position;
+
+        /**
+         * 缓冲区写满时调用, 之后必须有可用空间
+         */
+        protected abstract void drain() throws IOException;
+
+    }
+
+    private static final class ArraySink extends Sink {
+
+        private ArraySink(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        @Override
+        protected void drain() {
+            buf = Arrays.copyOf(buf, grow(buf.length));
+        }
+
+        private byte[] toByteArray() {
+            return position == buf.length ? buf : Arrays.copyOf(buf, position);
+        }
+
+    }
+
+    private static final class StreamSink extends Sink {
+
+        private final OutputStream out;
+
+        private StreamSink(OutputStream out, byte[] buf) {
+            this.out = out;
+            this.buf = buf;
+        }
+
+        @Override
+        protected void drain() throws IOException {
+            if (position > 0) {
+                out.write(buf, 0, position);
+                position = 0;
+            }
+        }
+
+    }
+
 }
@@ -1,19 +1,45 @@
 package io.github.honhimw;
 
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * 并行模式({@link #parallel()})占用后台工作线程, 不再使用时需要{@link #digest()}、{@link #reset()}或{@link #close()}结束
+ *
  * @author hon_him
+ * @see FastHashUtils
  * @since 2022-11-17
  */
 @SuppressWarnings("unused")
-public class HashUtils {
+public class HashUtils implements Closeable {
 
     public static final String MD2 = "MD2";
     public static final String MD5 = "MD5";
@@ -31,29 +57,119 @@ public class HashUtils {
 
     private static final byte[] EMPTY_BYTE_ARR = new byte[0];
 
-    private final Map<String, MessageDigest> messageDigests;
+    /**
+     * 读取channel时的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
 
-    private final Map<String, byte[]> results;
+    /**
+     * 文件按块映射, 避免单次映射超过2GB及占用过多虚拟地址空间
+     */
+    private static final long MAPPED_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final int DEFAULT_PARALLEL_CHUNK_SIZE = 1024 * 1024;
+
+    private static final int DEFAULT_PARALLEL_CHUNKS = 8;
+
+    /**
+     * 每个算法只查找一次provider, 之后通过clone创建实例
+     */
+    private static final Map<String, MessageDigest> PROTOTYPES = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Map<String, MessageDigest>> LOCAL_DIGESTS = ThreadLocal.withInitial(HashMap::new);
+
+    // 按传入顺序保存, 第一个为默认算法
+    private final String[] algorithms;
+
+    private final MessageDigest[] messageDigests;
+
+    private final byte[][] results;
 
     private final AtomicBoolean finish = new AtomicBoolean(false);
 
     private final char[] charset = HEX_DIGITS_LOWER_CAST;
 
+    // 并行模式下非null, 摘要完成后置为null
+    private Pipeline pipeline;
+
+    // 并行摘要失败, 各算法状态已不可用, reset前digest均抛出该异常
+    private IllegalStateException failure;
+
     private HashUtils(Set<String> algorithms) {
+        this.algorithms = algorithms.toArray(new String[0]);
+        messageDigests = new MessageDigest[this.algorithms.length];
+        results = new byte[this.algorithms.length][];
+        for (int i = 0; i < this.algorithms.length; i++) {
+            messageDigests[i] = newDigest(this.algorithms[i]);
+            results[i] = EMPTY_BYTE_ARR;
+        }
+    }
+
+    public static HashUtils newInstance(String... algorithm) {
+        return new HashUtils(new LinkedHashSet<>(List.of(algorithm)));
+    }
+
+    /**
+     * 一次读取同时计算多个算法的文件摘要
+     *
+     * @param path      文件路径
+     * @param algorithm 算法
+     */
+    public static HashUtils hashFile(Path path, String... algorithm) throws IOException {
+        return newInstance(algorithm).update(path);
+    }
+
+    /**
+     * 创建新的摘要实例, 优先clone已缓存的原型以避免provider查找
+     *
+     * @param algorithm 算法
+     * @throws IllegalArgumentException 不支持的算法
+     */
+    public static MessageDigest newDigest(String algorithm) {
+        MessageDigest prototype = PROTOTYPES.get(algorithm);
+        if (prototype == null) {
+            try {
+                prototype = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException(e);
+            }
+            MessageDigest previous = PROTOTYPES.putIfAbsent(algorithm, prototype);
+            if (previous != null) {
+                prototype = previous;
+            }
+        }
         try {
-            messageDigests = new HashMap<>(algorithms.size());
-            results = new HashMap<>(algorithms.size());
-            for (String algorithm : algorithms) {
-                messageDigests.put(algorithm, MessageDigest.getInstance(algorithm));
-                results.put(algorithm, EMPTY_BYTE_ARR);
+            // 原型从未update, clone等价于新实例
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalArgumentException(ex);
             }
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalArgumentException(e);
         }
     }
 
-    public static HashUtils newInstance(String... algorithm) {
-        return new HashUtils(Set.copyOf(List.of(algorithm)));
+    /**
+     * 当前线程复用的摘要实例, 返回前已重置; 不能跨线程使用, 也不能在使用期间再次获取同一算法
+     *
+     * @param algorithm 算法
+     * @throws IllegalArgumentException 不支持的算法
+     */
+    public static MessageDigest localDigest(String algorithm) {
+        MessageDigest messageDigest = LOCAL_DIGESTS.get().computeIfAbsent(algorithm, HashUtils::newDigest);
+        messageDigest.reset();
+        return messageDigest;
+    }
+
+    /**
+     * 使用当前线程复用的摘要实例计算单个算法的摘要, 适用于大量短消息
+     *
+     * @param algorithm 算法
+     * @param bytes     数据
+     */
+    public static byte[] hash(String algorithm, byte[] bytes) {
+        return localDigest(algorithm).digest(bytes);
     }
 
     public static HashUtils md5() {
@@ -73,35 +189,501 @@ public class HashUtils {
     }
 
     public HashUtils update(byte[] bytes) {
-        if (!messageDigests.isEmpty()) {
-            messageDigests.values().forEach(messageDigest -> messageDigest.update(bytes));
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 并行模式, 每个算法一个工作线程, 输入按块复制到池化缓冲区后分发, 耗时接近最慢的单个算法.
+     * <p>
+     * 开启后必须调用{@link #digest()}、{@link #reset()}或{@link #close()}结束, 否则工作线程会一直等待输入
+     */
+    public HashUtils parallel() {
+        return parallel(DEFAULT_PARALLEL_CHUNK_SIZE, DEFAULT_PARALLEL_CHUNKS);
+    }
+
+    /**
+     * @param chunkSize 每块大小(字节)
+     * @param chunks    最多在途的块数, 超过时update阻塞等待, 内存占用约为chunkSize * chunks
+     * @see #parallel()
+     */
+    public HashUtils parallel(int chunkSize, int chunks) {
+        if (chunkSize < 1 || chunks < 1) {
+            throw new IllegalArgumentException(
+                String.format("chunk size and chunks must be positive, chunk size: %s, chunks: %s", chunkSize, chunks));
+        }
+        if (finish.get()) {
+            throw new IllegalStateException("digest already finished");
+        }
+        if (pipeline == null && messageDigests.length > 0) {
+            pipeline = new Pipeline(chunkSize, chunks);
+        }
+        return this;
+    }
+
+    public boolean isParallel() {
+        return pipeline != null;
+    }
+
+    public HashUtils update(byte[] bytes, int offset, int length) {
+        if (pipeline != null) {
+            pipeline.write(bytes, offset, length);
+            return this;
+        }
+        for (MessageDigest messageDigest : messageDigests) {
+            messageDigest.update(bytes, offset, length);
+        }
+        return this;
+    }
+
+    /**
+     * 读取position到limit之间的数据, 支持堆外内存, 完成后position等于limit
+     */
+    public HashUtils update(ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        if (pipeline != null) {
+            pipeline.write(buffer);
+        } else if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + position, limit - position);
+        } else {
+            for (MessageDigest messageDigest : messageDigests) {
+                buffer.position(position);
+                messageDigest.update(buffer);
+            }
+        }
+        buffer.position(limit);
+        return this;
+    }
+
+    /**
+     * 读取channel直到末尾, 不关闭channel; {@link FileChannel}从当前位置按块内存映射读取
+     */
+    public HashUtils update(ReadableByteChannel channel) throws IOException {
+        if (channel instanceof FileChannel fileChannel) {
+            return update(fileChannel, fileChannel.position(), fileChannel.size());
+        }
+        byte[] bytes = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int read;
+        while ((read = channel.read(buffer)) >= 0) {
+            if (read > 0) {
+                update(bytes, 0, read);
+                buffer.clear();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 按块内存映射读取整个文件
+     */
+    public HashUtils update(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return update(channel, 0, channel.size());
+        }
+    }
+
+    private HashUtils update(FileChannel channel, long position, long end) throws IOException {
+        while (position < end) {
+            long size = Math.min(MAPPED_CHUNK_SIZE, end - position);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            if (pipeline != null) {
+                // 映射区域只读且由本方法持有, 无需复制
+                pipeline.submit(mapped);
+            } else {
+                update(mapped);
+            }
+            position += size;
+        }
+        channel.position(end);
+        return this;
+    }
+
+    /**
+     * 写入的数据同时计算摘要, 关闭时关闭delegate
+     *
+     * @param delegate 实际写入的流, null时只计算摘要
+     */
+    public OutputStream outputStream(OutputStream delegate) {
+        return new FilterOutputStream(delegate != null ? delegate : OutputStream.nullOutputStream()) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                if (pipeline != null) {
+                    pipeline.write((byte) b);
+                } else {
+                    for (MessageDigest messageDigest : messageDigests) {
+                        messageDigest.update((byte) b);
+                    }
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                update(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * 写入的数据同时计算摘要, 仅对delegate实际写入的部分计算
+     *
+     * @param delegate 实际写入的channel, null时只计算摘要
+     */
+    public WritableByteChannel channel(WritableByteChannel delegate) {
+        return new WritableByteChannel() {
+            private volatile boolean open = true;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                if (!open) {
+                    throw new ClosedChannelException();
+                }
+                int position = src.position();
+                int limit = src.limit();
+                int written;
+                if (delegate == null) {
+                    written = limit - position;
+                } else {
+                    written = delegate.write(src);
+                    src.position(position);
+                }
+                src.limit(position + written);
+                try {
+                    update(src);
+                } finally {
+                    src.limit(limit);
+                }
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open && (delegate == null || delegate.isOpen());
+            }
+
+            @Override
+            public void close() throws IOException {
+                open = false;
+                if (delegate != null) {
+                    delegate.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * 重置所有算法的状态及结果, 之后可以重新update; 并行模式会被关闭, 未处理的数据直接丢弃, 需要时重新开启
+     */
+    public synchronized HashUtils reset() {
+        cancel();
+        for (int i = 0; i < messageDigests.length; i++) {
+            messageDigests[i].reset();
+            results[i] = EMPTY_BYTE_ARR;
         }
+        failure = null;
+        finish.set(false);
         return this;
     }
 
+    /**
+     * 结束并行模式的工作线程, 丢弃未处理的数据; 已完成的摘要结果不受影响
+     */
+    @Override
+    public synchronized void close() {
+        cancel();
+    }
+
+    private void cancel() {
+        if (pipeline != null) {
+            try {
+                pipeline.cancel();
+            } finally {
+                pipeline = null;
+            }
+        }
+    }
+
     public byte[] digest() {
-        return digest(messageDigests.keySet().stream().findFirst().orElse(null));
+        return algorithms.length > 0 ? digest(algorithms[0]) : EMPTY_BYTE_ARR;
     }
 
     public byte[] digest(String algorithm) {
         if (!finish.get()) {
             doDigest();
         }
-        return results.getOrDefault(algorithm, EMPTY_BYTE_ARR);
+        for (int i = 0; i < algorithms.length; i++) {
+            if (algorithms[i].equals(algorithm)) {
+                return results[i];
+            }
+        }
+        return EMPTY_BYTE_ARR;
+    }
+
+    /**
+     * @return 算法, 按传入顺序
+     */
+    public List<String> algorithms() {
+        return List.of(algorithms);
     }
 
     private synchronized void doDigest() {
+        if (failure != null) {
+            throw failure;
+        }
         if (!finish.get()) {
-            if (!messageDigests.isEmpty()) {
-                messageDigests.forEach((alg, messageDigest) -> {
-                    byte[] digest = messageDigest.digest();
-                    results.put(alg, digest);
-                });
+            if (pipeline != null) {
+                try {
+                    pipeline.finish();
+                } catch (IllegalStateException e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    // 失败时同样置空, 工作线程均已退出, 不能再次发送结束标记
+                    pipeline = null;
+                }
+            } else {
+                for (int i = 0; i < messageDigests.length; i++) {
+                    results[i] = messageDigests[i].digest();
+                }
             }
             finish.compareAndSet(false, true);
         }
     }
 
+    /**
+     * 并行模式的分发管道: 每个算法一个有序队列, 块被所有算法处理完后归还缓冲池
+     */
+    private final class Pipeline {
+
+        private final int chunkSize;
+
+        // 在途块数上限, 提供背压
+        private final Semaphore permits;
+
+        private final Queue<byte[]> pool = new ConcurrentLinkedQueue<>();
+
+        private final BlockingQueue<Chunk>[] queues;
+
+        private final CountDownLatch done;
+
+        private volatile Throwable failure;
+
+        private volatile boolean cancelled;
+
+        // 正在填充的块
+        private byte[] current;
+
+        private int length;
+
+        @SuppressWarnings("unchecked")
+        private Pipeline(int chunkSize, int chunks) {
+            this.chunkSize = chunkSize;
+            this.permits = new Semaphore(chunks);
+            this.queues = (BlockingQueue<Chunk>[]) new BlockingQueue<?>[messageDigests.length];
+            this.done = new CountDownLatch(messageDigests.length);
+            for (int i = 0; i < queues.length; i++) {
+                // 多一个位置留给结束标记, 背压由permits控制, put不会阻塞
+                queues[i] = new ArrayBlockingQueue<>(chunks + 1);
+            }
+            for (int i = 0; i < queues.length; i++) {
+                final int index = i;
+                Workers.EXECUTOR.execute(() -> work(index));
+            }
+        }
+
+        private void write(byte b) {
+            if (current == null) {
+                current = borrow();
+            }
+            current[length++] = b;
+            if (length == current.length) {
+                flush();
+            }
+        }
+
+        private void write(byte[] bytes, int offset, int len) {
+            while (len > 0) {
+                if (current == null) {
+                    current = borrow();
+                }
+                int n = Math.min(len, current.length - length);
+                System.arraycopy(bytes, offset, current, length, n);
+                length += n;
+                offset += n;
+                len -= n;
+                if (length == current.length) {
+                    flush();
+                }
+            }
+        }
+
+        private void write(ByteBuffer buffer) {
+            while (buffer.hasRemaining()) {
+                if (current == null) {
+                    current = borrow();
+                }
+                int n = Math.min(buffer.remaining(), current.length - length);
+                buffer.get(current, length, n);
+                length += n;
+                if (length == current.length) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * 直接分发只读且不会被修改的缓冲区
+         */
+        private void submit(ByteBuffer buffer) {
+            flush();
+            acquire();
+            publish(new Chunk(null, 0, buffer, queues.length));
+        }
+
+        private void flush() {
+            if (current != null && length > 0) {
+                publish(new Chunk(current, length, null, queues.length));
+                current = null;
+                length = 0;
+            }
+        }
+
+        private void finish() {
+            flush();
+            if (current != null) {
+                release(new Chunk(current, 0, null, 1));
+                current = null;
+            }
+            publish(Chunk.END);
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (failure != null) {
+                throw new IllegalStateException("parallel digest failed", failure);
+            }
+        }
+
+        /**
+         * 丢弃正在填充及尚未处理的块, 等待工作线程退出, 不抛出工作线程的异常
+         */
+        private void cancel() {
+            cancelled = true;
+            if (current != null) {
+                release(new Chunk(current, 0, null, 1));
+                current = null;
+                length = 0;
+            }
+            publish(Chunk.END);
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private byte[] borrow() {
+            acquire();
+            byte[] bytes = pool.poll();
+            return bytes != null ? bytes : new byte[chunkSize];
+        }
+
+        private void acquire() {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void publish(Chunk chunk) {
+            try {
+                for (BlockingQueue<Chunk> queue : queues) {
+                    queue.put(chunk);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void release(Chunk chunk) {
+            if (chunk.pending.decrementAndGet() == 0) {
+                if (chunk.array != null) {
+                    pool.offer(chunk.array);
+                }
+                permits.release();
+            }
+        }
+
+        private void work(int index) {
+            MessageDigest messageDigest = messageDigests[index];
+            BlockingQueue<Chunk> queue = queues[index];
+            try {
+                Chunk chunk;
+                while ((chunk = queue.take()) != Chunk.END) {
+                    try {
+                        // 出错或取消后继续消费以归还缓冲区, 避免生产者阻塞
+                        if (failure == null && !cancelled) {
+                            if (chunk.buffer != null) {
+                                messageDigest.update(chunk.buffer.duplicate());
+                            } else {
+                                messageDigest.update(chunk.array, 0, chunk.length);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure = e;
+                    } finally {
+                        release(chunk);
+                    }
+                }
+                results[index] = messageDigest.digest();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }
+
+    }
+
+    private static final class Chunk {
+
+        private static final Chunk END = new Chunk(null, 0, null, 0);
+
+        private final byte[] array;
+
+        private final int length;
+
+        private final ByteBuffer buffer;
+
+        private final AtomicInteger pending;
+
+        private Chunk(byte[] array, int length, ByteBuffer buffer, int pending) {
+            this.array = array;
+            this.length = length;
+            this.buffer = buffer;
+            this.pending = new AtomicInteger(pending);
+        }
+
+    }
+
+    private static final class Workers {
+
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "hash-utils-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
     public String toHexString() {
         byte[] digest = this.digest();
         return toHexString(digest, charset);
@@ -113,10 +695,13 @@ public class HashUtils {
     }
 
     public static String toHexString(byte[] digest) {
-        return toHexString(digest, HEX_DIGITS_LOWER_CAST);
+        return HexUtils.encode(digest);
     }
 
     public static String toHexString(byte[] digest, char[] charset) {
+        if (charset == HEX_DIGITS_LOWER_CAST || charset == HEX_DIGITS_UPPER_CAST) {
+            return HexUtils.encode(digest, charset == HEX_DIGITS_UPPER_CAST);
+        }
         int length = digest.length;
         char[] chars = new char[length << 1];
         for (int i = 0, j = 0; i < length; i++) {
@@ -0,0 +1,314 @@
+package io.github.honhimw;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * 十六进制编解码.
+ * <p>
+ * 编码时每个字节查一次256项的表得到两个字符(打包为short), 直接写入Latin-1 {@code byte[]}后构造String, 不经过{@code char[]};
+ * 也可以写入调用方提供的{@code byte[]}/{@code char[]}/{@link Appendable}/{@link ByteBuffer}.
+ * 解码时循环内不做分支校验, 非法字符在结束后统一检查, 解析时忽略大小写.
+ * write方法返回写入后的下标, {@link ByteBuffer}版本从position开始读写并移动position
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public final class HexUtils {
+
+    private HexUtils() {
+    }
+
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final short[] LOWER_TABLE = encodeTable("0123456789abcdef");
+
+    private static final short[] UPPER_TABLE = encodeTable("0123456789ABCDEF");
+
+    /**
+     * 字符到半字节的映射, 非法字符为-1
+     */
+    private static final byte[] DECODE_TABLE = new byte[256];
+
+    static {
+        Arrays.fill(DECODE_TABLE, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            DECODE_TABLE['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            DECODE_TABLE['a' + i] = DECODE_TABLE['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private static short[] encodeTable(String digits) {
+        short[] table = new short[256];
+        for (int i = 0; i < 256; i++) {
+            table[i] = (short) (digits.charAt(i >>> 4) << 8 | digits.charAt(i & 0xF));
+        }
+        return table;
+    }
+
+    // ---------------- encode ----------------
+
+    public static String encode(byte[] src) {
+        return encode(src, 0, src.length, false);
+    }
+
+    public static String encode(byte[] src, boolean upperCase) {
+        return encode(src, 0, src.length, upperCase);
+    }
+
+    public static String encode(byte[] src, int offset, int length, boolean upperCase) {
+        checkBounds(src.length, offset, length);
+        byte[] dst = new byte[length << 1];
+        write(src, offset, length, dst, 0, upperCase);
+        return new String(dst, ISO_8859_1);
+    }
+
+    /**
+     * @param dst       目标数组, 需要{@code length * 2}个位置
+     * @param dstOffset 目标起始下标
+     * @return 写入后的下标
+     */
+    public static int write(byte[] src, int offset, int length, byte[] dst, int dstOffset, boolean upperCase) {
+        checkBounds(src.length, offset, length);
+        checkBounds(dst.length, dstOffset, length << 1);
+        final short[] table = upperCase ? UPPER_TABLE : LOWER_TABLE;
+        for (int i = offset, end = offset + length; i < end; i++, dstOffset += 2) {
+            SHORT_BE.set(dst, dstOffset, table[src[i] & 0xFF]);
+        }
+        return dstOffset;
+    }
+
+    /**
+     * @param dst       目标数组, 需要{@code length * 2}个位置
+     * @param dstOffset 目标起始下标
+     * @return 写入后的下标
+     */
+    public static int write(byte[] src, int offset, int length, char[] dst, int dstOffset, boolean upperCase) {
+        checkBounds(src.length, offset, length);
+        checkBounds(dst.length, dstOffset, length << 1);
+        final short[] table = upperCase ? UPPER_TABLE : LOWER_TABLE;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            short pair = table[src[i] & 0xFF];
+            dst[dstOffset++] = (char) (pair >>> 8 & 0xFF);
+            dst[dstOffset++] = (char) (pair & 0xFF);
+        }
+        return dstOffset;
+    }
+
+    /**
+     * 写入{@link Appendable}, IO异常包装为{@link UncheckedIOException}
+     *
+     * @return out
+     */
+    public static <A extends Appendable> A write(byte[] src, int offset, int length, A out, boolean upperCase) {
+        checkBounds(src.length, offset, length);
+        final short[] table = upperCase ? UPPER_TABLE : LOWER_TABLE;
+        try {
+            if (out instanceof StringBuilder sb) {
+                sb.ensureCapacity(sb.length() + (length << 1));
+            }
+            for (int i = offset, end = offset + length; i < end; i++) {
+                short pair = table[src[i] & 0xFF];
+                out.append((char) (pair >>> 8 & 0xFF));
+                out.append((char) (pair & 0xFF));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /**
+     * 编码src的剩余部分写入dst, 两者的position都会移动
+     *
+     * @throws BufferOverflowException dst剩余空间不足
+     */
+    public static void write(ByteBuffer src, ByteBuffer dst, boolean upperCase) {
+        if (dst.remaining() < src.remaining() << 1) {
+            throw new BufferOverflowException();
+        }
+        final short[] table = upperCase ? UPPER_TABLE : LOWER_TABLE;
+        if (src.hasArray() && dst.hasArray()) {
+            int length = src.remaining();
+            write(src.array(), src.arrayOffset() + src.position(), length,
+                dst.array(), dst.arrayOffset() + dst.position(), upperCase);
+            src.position(src.limit());
+            dst.position(dst.position() + (length << 1));
+            return;
+        }
+        ByteOrder order = dst.order();
+        dst.order(ByteOrder.BIG_ENDIAN);
+        try {
+            while (src.hasRemaining()) {
+                dst.putShort(table[src.get() & 0xFF]);
+            }
+        } finally {
+            dst.order(order);
+        }
+    }
+
+    // ---------------- decode ----------------
+
+    /**
+     * @throws IllegalArgumentException 长度为奇数或包含非十六进制字符
+     */
+    public static byte[] decode(CharSequence cs) {
+        int length = checkEven(cs.length());
+        byte[] dst = new byte[length >>> 1];
+        decode(cs, 0, length, dst, 0);
+        return dst;
+    }
+
+    /**
+     * @param from 起始下标(包含)
+     * @param to   结束下标(不包含)
+     * @param dst  目标数组, 需要{@code (to - from) / 2}个位置
+     * @return 写入后的下标
+     * @throws IllegalArgumentException 长度为奇数或包含非十六进制字符
+     */
+    public static int decode(CharSequence cs, int from, int to, byte[] dst, int dstOffset) {
+        checkBounds(cs.length(), from, to - from);
+        int length = checkEven(to - from);
+        checkBounds(dst.length, dstOffset, length >>> 1);
+        int error = 0;
+        for (int i = from; i < to; i += 2) {
+            char hi = cs.charAt(i);
+            char lo = cs.charAt(i + 1);
+            int h = DECODE_TABLE[hi & 0xFF];
+            int l = DECODE_TABLE[lo & 0xFF];
+            // 非法字符使error出现高位, 结束后统一检查
+            error |= h | l | (hi | lo) & 0xFF00;
+            dst[dstOffset++] = (byte) (h << 4 | l);
+        }
+        if ((error & ~0xF) != 0) {
+            throw invalid(cs, from, to);
+        }
+        return dstOffset;
+    }
+
+    /**
+     * 解码ASCII字节形式的十六进制
+     *
+     * @throws IllegalArgumentException 长度为奇数或包含非十六进制字符
+     */
+    public static byte[] decode(byte[] src) {
+        int length = checkEven(src.length);
+        byte[] dst = new byte[length >>> 1];
+        decode(src, 0, length, dst, 0);
+        return dst;
+    }
+
+    /**
+     * @param dst 目标数组, 需要{@code length / 2}个位置
+     * @return 写入后的下标
+     * @throws IllegalArgumentException 长度为奇数或包含非十六进制字符
+     */
+    public static int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        checkBounds(src.length, offset, length);
+        checkEven(length);
+        checkBounds(dst.length, dstOffset, length >>> 1);
+        int error = decode(src, offset, length, dst, dstOffset, 0);
+        if ((error & ~0xF) != 0) {
+            throw invalid(new String(src, offset, length, ISO_8859_1), 0, length);
+        }
+        return dstOffset + (length >>> 1);
+    }
+
+    /**
+     * @return 错误标记, 出现非法字符时高位不为0
+     */
+    private static int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset, int error) {
+        for (int i = offset, end = offset + length; i < end; i += 2) {
+            int h = DECODE_TABLE[src[i] & 0xFF];
+            int l = DECODE_TABLE[src[i + 1] & 0xFF];
+            error |= h | l;
+            dst[dstOffset++] = (byte) (h << 4 | l);
+        }
+        return error;
+    }
+
+    /**
+     * 解码src的剩余部分写入dst, 两者的position都会移动
+     *
+     * @throws IllegalArgumentException         长度为奇数或包含非十六进制字符
+     * @throws BufferOverflowException dst剩余空间不足
+     */
+    public static void decode(ByteBuffer src, ByteBuffer dst) {
+        int length = checkEven(src.remaining());
+        if (dst.remaining() < length >>> 1) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            decode(src.array(), src.arrayOffset() + src.position(), length,
+                dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + (length >>> 1));
+            return;
+        }
+        int position = src.position();
+        int error = 0;
+        for (int i = 0; i < length; i += 2) {
+            int h = DECODE_TABLE[src.get() & 0xFF];
+            int l = DECODE_TABLE[src.get() & 0xFF];
+            error |= h | l;
+            dst.put((byte) (h << 4 | l));
+        }
+        if ((error & ~0xF) != 0) {
+            byte[] bytes = new byte[length];
+            src.get(position, bytes);
+            throw invalid(new String(bytes, ISO_8859_1), 0, length);
+        }
+    }
+
+    /**
+     * @return 字符是否全部为十六进制且长度为偶数
+     */
+    public static boolean isHex(CharSequence cs) {
+        int length = cs.length();
+        if ((length & 1) != 0) {
+            return false;
+        }
+        int error = 0;
+        for (int i = 0; i < length; i++) {
+            char c = cs.charAt(i);
+            error |= DECODE_TABLE[c & 0xFF] | c & 0xFF00;
+        }
+        return (error & ~0xF) == 0;
+    }
+
+    private static int checkEven(int length) {
+        if ((length & 1) != 0) {
+            throw new IllegalArgumentException(String.format("hex length must be even: %s", length));
+        }
+        return length;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence cs, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = cs.charAt(i);
+            if (c > 0xFF || DECODE_TABLE[c] < 0) {
+                return new IllegalArgumentException(String.format("illegal hex character '%s' at index %s", c, i));
+            }
+        }
+        return new IllegalArgumentException("illegal hex character");
+    }
+
+    private static void checkBounds(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException(
+                String.format("offset: %s, length: %s, array length: %s", offset, length, arrayLength));
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+package io.github.honhimw;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * HMAC签名与校验.
+ * <p>
+ * {@link Signer}持有已初始化的{@link Mac}原型, 每个线程clone一份复用, 之后每条消息都不再执行密钥初始化;
+ * 同一个key应复用同一个Signer. 校验使用{@link MessageDigest#isEqual(byte[], byte[])}, 耗时与内容无关
+ * <pre>{@code
+ * HmacUtils.Signer signer = HmacUtils.signer(HmacUtils.HMAC_SHA256, secret);
+ * String signature = signer.signHex(body);
+ * boolean valid = signer.verifyHex(body, request.getHeader("X-Signature"));
+ * }</pre>
+ *
+ * @author hon_him
+ * @see KeyGeneratorUtils#generateSecretKey()
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public final class HmacUtils {
+
+    private HmacUtils() {
+    }
+
+    public static final String HMAC_MD5 = "HmacMD5";
+    public static final String HMAC_SHA1 = "HmacSHA1";
+    public static final String HMAC_SHA256 = "HmacSHA256";
+    public static final String HMAC_SHA384 = "HmacSHA384";
+    public static final String HMAC_SHA512 = "HmacSHA512";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * @param key 密钥, 算法取{@link SecretKey#getAlgorithm()}
+     * @throws IllegalArgumentException 不支持的算法或非法密钥
+     */
+    public static Signer signer(SecretKey key) {
+        return new Signer(key.getAlgorithm(), key);
+    }
+
+    /**
+     * @param algorithm 算法, 如{@link #HMAC_SHA256}
+     * @param key       密钥
+     * @throws IllegalArgumentException 不支持的算法或非法密钥
+     */
+    public static Signer signer(String algorithm, byte[] key) {
+        return new Signer(algorithm, new SecretKeySpec(key, algorithm));
+    }
+
+    public static Signer signer(String algorithm, String key) {
+        return signer(algorithm, key.getBytes(UTF_8));
+    }
+
+    /**
+     * 单次计算, 直接初始化一个{@link Mac}, 不创建{@link Signer}; 同一个key多次使用时应使用{@link #signer(String, byte[])}
+     *
+     * @throws IllegalArgumentException 不支持的算法或非法密钥
+     */
+    public static byte[] hmac(String algorithm, byte[] key, byte[] data) {
+        return init(algorithm, new SecretKeySpec(key, algorithm)).doFinal(data);
+    }
+
+    /**
+     * 常量时间比较
+     */
+    public static boolean isEqual(byte[] expected, byte[] actual) {
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    private static Mac init(String algorithm, SecretKey key) {
+        try {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public static final class Signer {
+
+        private final String algorithm;
+
+        private final SecretKey key;
+
+        private final Mac prototype;
+
+        // 首次clone失败后置为false, 之后直接重新初始化
+        private volatile boolean cloneable = true;
+
+        private final ThreadLocal<Mac> local;
+
+        private Signer(String algorithm, SecretKey key) {
+            this.algorithm = algorithm;
+            this.key = key;
+            this.prototype = init(algorithm, key);
+            this.local = ThreadLocal.withInitial(this::newMac);
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public int getMacLength() {
+            return prototype.getMacLength();
+        }
+
+        /**
+         * 独立的已初始化{@link Mac}, 用于调用方自行控制的流式计算; 优先clone原型, 不支持时重新初始化
+         */
+        public Mac newMac() {
+            if (cloneable) {
+                try {
+                    return (Mac) prototype.clone();
+                } catch (CloneNotSupportedException e) {
+                    cloneable = false;
+                }
+            }
+            return init(algorithm, key);
+        }
+
+        /**
+         * doFinal后Mac自动重置为初始化后的状态, 可以直接复用
+         */
+        private Mac mac() {
+            return local.get();
+        }
+
+        public byte[] sign(byte[] data) {
+            return mac().doFinal(data);
+        }
+
+        public byte[] sign(byte[] data, int offset, int length) {
+            Mac mac = mac();
+            mac.update(data, offset, length);
+            return mac.doFinal();
+        }
+
+        /**
+         * 读取position到limit之间的数据, 完成后position等于limit
+         */
+        public byte[] sign(ByteBuffer data) {
+            Mac mac = mac();
+            mac.update(data);
+            return mac.doFinal();
+        }
+
+        /**
+         * 按UTF-8编码
+         */
+        public byte[] sign(CharSequence data) {
+            return sign(data.toString().getBytes(UTF_8));
+        }
+
+        /**
+         * 读取直到末尾, 不关闭流
+         */
+        public byte[] sign(InputStream in) throws IOException {
+            Mac mac = mac();
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    mac.update(buffer, 0, read);
+                }
+                return mac.doFinal();
+            } finally {
+                // 异常时丢弃已写入的数据
+                mac.reset();
+            }
+        }
+
+        /**
+         * 读取直到末尾, 不关闭channel
+         */
+        public byte[] sign(ReadableByteChannel channel) throws IOException {
+            Mac mac = mac();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    mac.update(buffer);
+                    buffer.clear();
+                }
+                return mac.doFinal();
+            } finally {
+                mac.reset();
+            }
+        }
+
+        public String signHex(byte[] data) {
+            return HexUtils.encode(sign(data));
+        }
+
+        public String signHex(CharSequence data) {
+            return HexUtils.encode(sign(data));
+        }
+
+        /**
+         * 常量时间比较签名
+         */
+        public boolean verify(byte[] data, byte[] signature) {
+            return signature != null && MessageDigest.isEqual(sign(data), signature);
+        }
+
+        public boolean verify(CharSequence data, byte[] signature) {
+            return signature != null && MessageDigest.isEqual(sign(data), signature);
+        }
+
+        /**
+         * @param signature 十六进制签名, 忽略大小写; 格式错误时返回false
+         */
+        public boolean verifyHex(byte[] data, CharSequence signature) {
+            return verify(data, decodeHex(signature));
+        }
+
+        public boolean verifyHex(CharSequence data, CharSequence signature) {
+            return verify(data, decodeHex(signature));
+        }
+
+        private byte[] decodeHex(CharSequence signature) {
+            if (signature == null || signature.length() != getMacLength() << 1 || !HexUtils.isHex(signature)) {
+                return null;
+            }
+            return HexUtils.decode(signature);
+        }
+
+    }
+
+}
@@ -0,0 +1,422 @@
+package io.github.honhimw;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * {@link SnowflakeUtils}ID的字符串编码, 直接写入调用方提供的{@code char[]}/{@code byte[]}/{@link ByteBuffer},
+ * 解析时也不产生中间对象.
+ * <ul>
+ *     <li>decimal: 与{@link Long#toString(long)}一致</li>
+ *     <li>base32: Crockford字母表, 按无符号数编码, 解析时忽略大小写并兼容O/I/L</li>
+ *     <li>base62: 0-9A-Za-z, 按无符号数编码</li>
+ *     <li>fixed: 左侧补0至固定长度, 字典序与数值顺序一致</li>
+ * </ul>
+ * write方法返回写入后的下标, {@link ByteBuffer}版本从position开始写入并移动position
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public final class IdCodecUtils {
+
+    private IdCodecUtils() {
+    }
+
+    public static final int DECIMAL_MAX_LENGTH = 20;
+
+    public static final int BASE32_FIXED_LENGTH = 13;
+
+    public static final int BASE62_FIXED_LENGTH = 11;
+
+    private static final byte[] DECIMAL_DIGITS = "0123456789".getBytes(ISO_8859_1);
+
+    private static final byte[] BASE32_DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(ISO_8859_1);
+
+    private static final byte[] BASE62_DIGITS =
+        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes(ISO_8859_1);
+
+    private static final byte[] DECIMAL_TABLE = decodeTable(DECIMAL_DIGITS);
+
+    private static final byte[] BASE32_TABLE = decodeTable(BASE32_DIGITS);
+
+    private static final byte[] BASE62_TABLE = decodeTable(BASE62_DIGITS);
+
+    static {
+        for (int i = 10; i < BASE32_DIGITS.length; i++) {
+            BASE32_TABLE[Character.toLowerCase(BASE32_DIGITS[i])] = (byte) i;
+        }
+        BASE32_TABLE['O'] = BASE32_TABLE['o'] = 0;
+        BASE32_TABLE['I'] = BASE32_TABLE['i'] = BASE32_TABLE['L'] = BASE32_TABLE['l'] = 1;
+    }
+
+    private static byte[] decodeTable(byte[] digits) {
+        byte[] table = new byte[128];
+        Arrays.fill(table, (byte) -1);
+        for (int i = 0; i < digits.length; i++) {
+            table[digits[i]] = (byte) i;
+        }
+        return table;
+    }
+
+    /**
+     * ==================================================================================
+     * Decimal
+     * ==================================================================================
+     */
+
+    public static int decimalLength(long id) {
+        return id < 0 ? unsignedLength(-id, 10) + 1 : unsignedLength(id, 10);
+    }
+
+    public static int writeDecimal(long id, char[] dst, int offset) {
+        int end = offset + decimalLength(id);
+        if (id < 0) {
+            dst[offset] = '-';
+            id = -id;
+        }
+        for (int i = end - 1; ; i--) {
+            long q = divide(id, 10);
+            dst[i] = (char) DECIMAL_DIGITS[(int) (id - q * 10)];
+            if ((id = q) == 0) {
+                break;
+            }
+        }
+        return end;
+    }
+
+    public static int writeDecimal(long id, byte[] dst, int offset) {
+        int end = offset + decimalLength(id);
+        if (id < 0) {
+            dst[offset] = '-';
+            id = -id;
+        }
+        for (int i = end - 1; ; i--) {
+            long q = divide(id, 10);
+            dst[i] = DECIMAL_DIGITS[(int) (id - q * 10)];
+            if ((id = q) == 0) {
+                break;
+            }
+        }
+        return end;
+    }
+
+    public static void writeDecimal(long id, ByteBuffer dst) {
+        int position = dst.position();
+        int end = position + decimalLength(id);
+        if (id < 0) {
+            dst.put(position, (byte) '-');
+            id = -id;
+        }
+        for (int i = end - 1; ; i--) {
+            long q = divide(id, 10);
+            dst.put(i, DECIMAL_DIGITS[(int) (id - q * 10)]);
+            if ((id = q) == 0) {
+                break;
+            }
+        }
+        dst.position(end);
+    }
+
+    public static long parseDecimal(CharSequence cs) {
+        return parseDecimal(cs, 0, cs.length());
+    }
+
+    public static long parseDecimal(CharSequence cs, int from, int to) {
+        boolean negative = to > from && cs.charAt(from) == '-';
+        long value = parseUnsigned(cs, negative ? from + 1 : from, to, DECIMAL_TABLE, 10);
+        return checkSigned(value, negative, cs, from, to);
+    }
+
+    public static long parseDecimal(byte[] src, int offset, int length) {
+        boolean negative = length > 0 && src[offset] == '-';
+        long value = negative
+            ? parseUnsigned(src, offset + 1, length - 1, DECIMAL_TABLE, 10)
+            : parseUnsigned(src, offset, length, DECIMAL_TABLE, 10);
+        return checkSigned(value, negative, src, offset, length);
+    }
+
+    /**
+     * 解析position到limit之间的内容并移动position
+     */
+    public static long parseDecimal(ByteBuffer src) {
+        int position = src.position();
+        int limit = src.limit();
+        boolean negative = limit > position && src.get(position) == '-';
+        long value = parseUnsigned(src, negative ? position + 1 : position, limit, DECIMAL_TABLE, 10);
+        value = checkSigned(value, negative, src, position, limit);
+        src.position(limit);
+        return value;
+    }
+
+    /**
+     * ==================================================================================
+     * Base32(Crockford)
+     * ==================================================================================
+     */
+
+    public static int base32Length(long id) {
+        return Math.max(1, (68 - Long.numberOfLeadingZeros(id)) / 5);
+    }
+
+    public static int writeBase32(long id, char[] dst, int offset) {
+        return writeBase32(id, dst, offset, base32Length(id));
+    }
+
+    public static int writeBase32(long id, byte[] dst, int offset) {
+        return writeBase32(id, dst, offset, base32Length(id));
+    }
+
+    public static void writeBase32(long id, ByteBuffer dst) {
+        writeBase32(id, dst, base32Length(id));
+    }
+
+    public static int writeBase32Fixed(long id, char[] dst, int offset) {
+        return writeBase32(id, dst, offset, BASE32_FIXED_LENGTH);
+    }
+
+    public static int writeBase32Fixed(long id, byte[] dst, int offset) {
+        return writeBase32(id, dst, offset, BASE32_FIXED_LENGTH);
+    }
+
+    public static void writeBase32Fixed(long id, ByteBuffer dst) {
+        writeBase32(id, dst, BASE32_FIXED_LENGTH);
+    }
+
+    public static long parseBase32(CharSequence cs) {
+        return parseUnsigned(cs, 0, cs.length(), BASE32_TABLE, 32);
+    }
+
+    public static long parseBase32(CharSequence cs, int from, int to) {
+        return parseUnsigned(cs, from, to, BASE32_TABLE, 32);
+    }
+
+    public static long parseBase32(byte[] src, int offset, int length) {
+        return parseUnsigned(src, offset, length, BASE32_TABLE, 32);
+    }
+
+    /**
+     * 解析position到limit之间的内容并移动position
+     */
+    public static long parseBase32(ByteBuffer src) {
+        long value = parseUnsigned(src, src.position(), src.limit(), BASE32_TABLE, 32);
+        src.position(src.limit());
+        return value;
+    }
+
+    private static int writeBase32(long id, char[] dst, int offset, int length) {
+        for (int i = 0, shift = (length - 1) * 5; i < length; i++, shift -= 5) {
+            dst[offset + i] = (char) BASE32_DIGITS[(int) (id >>> shift) & 31];
+        }
+        return offset + length;
+    }
+
+    private static int writeBase32(long id, byte[] dst, int offset, int length) {
+        for (int i = 0, shift = (length - 1) * 5; i < length; i++, shift -= 5) {
+            dst[offset + i] = BASE32_DIGITS[(int) (id >>> shift) & 31];
+        }
+        return offset + length;
+    }
+
+    private static void writeBase32(long id, ByteBuffer dst, int length) {
+        int position = dst.position();
+        for (int i = 0, shift = (length - 1) * 5; i < length; i++, shift -= 5) {
+            dst.put(position + i, BASE32_DIGITS[(int) (id >>> shift) & 31]);
+        }
+        dst.position(position + length);
+    }
+
+    /**
+     * ==================================================================================
+     * Base62
+     * ==================================================================================
+     */
+
+    public static int base62Length(long id) {
+        return unsignedLength(id, 62);
+    }
+
+    public static int writeBase62(long id, char[] dst, int offset) {
+        return writeBase62(id, dst, offset, base62Length(id));
+    }
+
+    public static int writeBase62(long id, byte[] dst, int offset) {
+        return writeBase62(id, dst, offset, base62Length(id));
+    }
+
+    public static void writeBase62(long id, ByteBuffer dst) {
+        writeBase62(id, dst, base62Length(id));
+    }
+
+    public static int writeBase62Fixed(long id, char[] dst, int offset) {
+        return writeBase62(id, dst, offset, BASE62_FIXED_LENGTH);
+    }
+
+    public static int writeBase62Fixed(long id, byte[] dst, int offset) {
+        return writeBase62(id, dst, offset, BASE62_FIXED_LENGTH);
+    }
+
+    public static void writeBase62Fixed(long id, ByteBuffer dst) {
+        writeBase62(id, dst, BASE62_FIXED_LENGTH);
+    }
+
+    public static long parseBase62(CharSequence cs) {
+        return parseUnsigned(cs, 0, cs.length(), BASE62_TABLE, 62);
+    }
+
+    public static long parseBase62(CharSequence cs, int from, int to) {
+        return parseUnsigned(cs, from, to, BASE62_TABLE, 62);
+    }
+
+    public static long parseBase62(byte[] src, int offset, int length) {
+        return parseUnsigned(src, offset, length, BASE62_TABLE, 62);
+    }
+
+    /**
+     * 解析position到limit之间的内容并移动position
+     */
+    public static long parseBase62(ByteBuffer src) {
+        long value = parseUnsigned(src, src.position(), src.limit(), BASE62_TABLE, 62);
+        src.position(src.limit());
+        return value;
+    }
+
+    private static int writeBase62(long id, char[] dst, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            long q = divide(id, 62);
+            dst[i] = (char) BASE62_DIGITS[(int) (id - q * 62)];
+            id = q;
+        }
+        return offset + length;
+    }
+
+    private static int writeBase62(long id, byte[] dst, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            long q = divide(id, 62);
+            dst[i] = BASE62_DIGITS[(int) (id - q * 62)];
+            id = q;
+        }
+        return offset + length;
+    }
+
+    private static void writeBase62(long id, ByteBuffer dst, int length) {
+        int position = dst.position();
+        for (int i = position + length - 1; i >= position; i--) {
+            long q = divide(id, 62);
+            dst.put(i, BASE62_DIGITS[(int) (id - q * 62)]);
+            id = q;
+        }
+        dst.position(position + length);
+    }
+
+    // ------------------------------------------------------------------------------------------------------------------------------------ Private method start
+
+    /**
+     * 按无符号数相除, 非负数走普通除法
+     */
+    private static long divide(long value, int radix) {
+        return value >= 0 ? value / radix : Long.divideUnsigned(value, radix);
+    }
+
+    private static int unsignedLength(long value, int radix) {
+        int length = 1;
+        while ((value = divide(value, radix)) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static long parseUnsigned(CharSequence cs, int from, int to, byte[] table, int radix) {
+        if (from >= to) {
+            throw new NumberFormatException("empty id string");
+        }
+        final long limit = Long.divideUnsigned(-1L, radix);
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = cs.charAt(i);
+            int digit = c < 128 ? table[c] : -1;
+            if (digit < 0 || Long.compareUnsigned(value, limit) > 0) {
+                throw invalid(cs.subSequence(from, to));
+            }
+            long multiplied = value * radix;
+            value = multiplied + digit;
+            if (Long.compareUnsigned(value, multiplied) < 0) {
+                throw invalid(cs.subSequence(from, to));
+            }
+        }
+        return value;
+    }
+
+    private static long parseUnsigned(byte[] src, int offset, int length, byte[] table, int radix) {
+        if (length <= 0) {
+            throw new NumberFormatException("empty id string");
+        }
+        final long limit = Long.divideUnsigned(-1L, radix);
+        long value = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = src[i];
+            int digit = b >= 0 ? table[b] : -1;
+            if (digit < 0 || Long.compareUnsigned(value, limit) > 0) {
+                throw invalid(new String(src, offset, length, ISO_8859_1));
+            }
+            long multiplied = value * radix;
+            value = multiplied + digit;
+            if (Long.compareUnsigned(value, multiplied) < 0) {
+                throw invalid(new String(src, offset, length, ISO_8859_1));
+            }
+        }
+        return value;
+    }
+
+    private static long parseUnsigned(ByteBuffer src, int from, int to, byte[] table, int radix) {
+        if (src.hasArray()) {
+            return parseUnsigned(src.array(), src.arrayOffset() + from, to - from, table, radix);
+        }
+        if (from >= to) {
+            throw new NumberFormatException("empty id string");
+        }
+        final long limit = Long.divideUnsigned(-1L, radix);
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int b = src.get(i);
+            int digit = b >= 0 ? table[b] : -1;
+            if (digit < 0 || Long.compareUnsigned(value, limit) > 0) {
+                throw invalid(ISO_8859_1.decode(src.duplicate().position(from).limit(to)));
+            }
+            long multiplied = value * radix;
+            value = multiplied + digit;
+            if (Long.compareUnsigned(value, multiplied) < 0) {
+                throw invalid(ISO_8859_1.decode(src.duplicate().position(from).limit(to)));
+            }
+        }
+        return value;
+    }
+
+    private static long checkSigned(long value, boolean negative, CharSequence cs, int from, int to) {
+        if (negative ? Long.compareUnsigned(value, Long.MIN_VALUE) > 0 : value < 0) {
+            throw invalid(cs.subSequence(from, to));
+        }
+        return negative ? -value : value;
+    }
+
+    private static long checkSigned(long value, boolean negative, byte[] src, int offset, int length) {
+        if (negative ? Long.compareUnsigned(value, Long.MIN_VALUE) > 0 : value < 0) {
+            throw invalid(new String(src, offset, length, ISO_8859_1));
+        }
+        return negative ? -value : value;
+    }
+
+    private static long checkSigned(long value, boolean negative, ByteBuffer src, int from, int to) {
+        if (negative ? Long.compareUnsigned(value, Long.MIN_VALUE) > 0 : value < 0) {
+            throw invalid(ISO_8859_1.decode(src.duplicate().position(from).limit(to)));
+        }
+        return negative ? -value : value;
+    }
+
+    private static NumberFormatException invalid(CharSequence cs) {
+        return new NumberFormatException(String.format("invalid id string: \"%s\"", cs));
+    }
+
+}
@@ -0,0 +1,234 @@
+package io.github.honhimw;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于{@link SnowflakeUtils}的预生成ID环形缓冲区, 取ID只需一次数组读取和一次CAS.
+ * <p>
+ * 同一时刻只有一个填充者(后台线程或调用{@link #refill()}的线程)写入, 多个消费者通过游标CAS取出,
+ * 剩余数量降到低水位时唤醒后台线程填充, 缓冲区为空时直接调用{@link SnowflakeUtils#nextId()}并记录未命中.
+ * <p>
+ * 后台填充失败(如时钟回拨、租约失效)时记录到{@link #getFailureCount()}和{@link #getLastFailure()}, 退避后重试, 线程不会退出.
+ * <p>
+ * 预生成的ID时间戳为填充时刻, 不适合依赖ID时间精度的场景; 未命中时取到的ID大于缓冲区中剩余的ID, 取出顺序不保证递增
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public class IdRingBuffer implements Closeable {
+
+    // 后台填充失败后的退避时间, 连续失败时翻倍
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final SnowflakeUtils snowflake;
+
+    private final long[] ring;
+
+    private final int mask;
+
+    private final int lowWaterMark;
+
+    // 下一个待取出的位置
+    private final AtomicLong head = new AtomicLong();
+
+    // 已填充的位置, 只由持有filling的线程写入
+    private volatile long tail;
+
+    private final AtomicBoolean filling = new AtomicBoolean(false);
+
+    // 已请求后台线程填充, 避免每次取ID都unpark
+    private final AtomicBoolean requested = new AtomicBoolean(false);
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder refills = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private volatile RuntimeException lastFailure;
+
+    private final Thread filler;
+
+    private volatile boolean closed;
+
+    /**
+     * @param snowflake    ID生成器
+     * @param capacity     容量, 向上取整为2的幂
+     * @param lowWaterMark 剩余数量不大于该值时触发填充
+     * @param background   是否启动后台填充线程, 否则需由调用方在空闲时调用{@link #refill()}
+     */
+    public IdRingBuffer(SnowflakeUtils snowflake, int capacity, int lowWaterMark, boolean background) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity range [1,2^30]");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        if (lowWaterMark < 0 || lowWaterMark >= size) {
+            throw new IllegalArgumentException(String.format("low water mark range [0,%s)", size));
+        }
+        this.snowflake = snowflake;
+        this.ring = new long[size];
+        this.mask = size - 1;
+        this.lowWaterMark = lowWaterMark;
+        refill();
+        if (background) {
+            filler = new Thread(this::fillLoop, "id-ring-buffer-filler");
+            filler.setDaemon(true);
+            filler.start();
+        } else {
+            filler = null;
+        }
+    }
+
+    public static IdRingBuffer of(SnowflakeUtils snowflake, int capacity) {
+        return new IdRingBuffer(snowflake, capacity, capacity >> 2, true);
+    }
+
+    /**
+     * 下一个ID. 缓冲区为空时直接调用{@link SnowflakeUtils#nextId()}, 得到的ID比缓冲区中尚未取出的ID更大,
+     * 之后从缓冲区取出的ID会小于它, 因此多次调用的结果不保证递增; 需要严格递增时直接使用{@link SnowflakeUtils}
+     *
+     * @return ID
+     */
+    public long nextId() {
+        for (; ; ) {
+            final long h = head.get();
+            final long t = tail;
+            if (h >= t) {
+                misses.increment();
+                signal();
+                return snowflake.nextId();
+            }
+            // 先读后CAS: CAS成功说明读取时该位置尚未被填充者覆盖
+            final long id = ring[(int) h & mask];
+            if (head.compareAndSet(h, h + 1)) {
+                hits.increment();
+                if (t - h - 1 <= lowWaterMark) {
+                    signal();
+                }
+                return id;
+            }
+        }
+    }
+
+    /**
+     * 将缓冲区填满, 已有其他线程在填充时直接返回
+     *
+     * @return 本次填充的数量
+     */
+    public int refill() {
+        if (!filling.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            final long t = tail;
+            final int free = (int) (ring.length - (t - head.get()));
+            if (free <= 0) {
+                return 0;
+            }
+            // 按环形边界分两段批量生成
+            final int from = (int) t & mask;
+            final int first = Math.min(free, ring.length - from);
+            snowflake.nextIds(ring, from, first);
+            if (free > first) {
+                snowflake.nextIds(ring, 0, free - first);
+            }
+            tail = t + free;
+            refills.increment();
+            return free;
+        } finally {
+            filling.set(false);
+        }
+    }
+
+    /**
+     * @return 当前可取出的ID数量
+     */
+    public int size() {
+        return (int) Math.max(0L, tail - head.get());
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRefillCount() {
+        return refills.sum();
+    }
+
+    /**
+     * @return 后台线程填充失败的次数
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return 后台线程最近一次填充失败的异常, 没有失败时为null
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (filler != null) {
+            LockSupport.unpark(filler);
+        }
+    }
+
+    /**
+     * 只有将请求标记由false改为true的线程unpark, 后台线程处理前的重复请求被合并
+     */
+    private void signal() {
+        if (filler != null && !requested.get() && requested.compareAndSet(false, true)) {
+            LockSupport.unpark(filler);
+        }
+    }
+
+    private void fillLoop() {
+        long backoff = 0L;
+        while (!closed) {
+            // 先清除请求标记再检查水位, 检查之后的请求一定会再次unpark, 不会丢失唤醒
+            requested.set(false);
+            try {
+                if (size() <= lowWaterMark && refill() > 0) {
+                    backoff = 0L;
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                failures.increment();
+                lastFailure = e;
+                backoff = backoff == 0L ? MIN_BACKOFF_NANOS : Math.min(backoff << 1, MAX_BACKOFF_NANOS);
+                // 退避期间忽略signal的唤醒, 避免未命中时反复重试
+                final long deadline = System.nanoTime() + backoff;
+                long remaining;
+                while (!closed && (remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+                continue;
+            }
+            // 其他线程正在填充或已填满时同样park, 不自旋
+            LockSupport.park(this);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package io.github.honhimw;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内的机器节点id分配, 租约在ttl内未续约即可被回收, 用于测试或单进程多实例
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public class InMemoryWorkerIdAllocator implements WorkerIdAllocator {
+
+    private final Map<Long, InMemoryLease> leases = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+
+    private final LongSupplier clock;
+
+    public InMemoryWorkerIdAllocator() {
+        this(Duration.ofSeconds(30));
+    }
+
+    public InMemoryWorkerIdAllocator(Duration ttl) {
+        this(ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * @param ttl   租约有效期
+     * @param clock 毫秒时钟, 测试时可手动推进
+     */
+    public InMemoryWorkerIdAllocator(Duration ttl, LongSupplier clock) {
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public Lease lease(long maxWorkerId) {
+        for (long workerId = 0; workerId <= maxWorkerId; workerId++) {
+            InMemoryLease lease = new InMemoryLease(workerId, clock.getAsLong() + ttlMillis);
+            InMemoryLease previous = leases.putIfAbsent(workerId, lease);
+            if (previous == null) {
+                return lease;
+            }
+            if (!previous.isValid() && leases.replace(workerId, previous, lease)) {
+                previous.valid = false;
+                return lease;
+            }
+        }
+        throw new IllegalStateException(String.format("no worker id available in [0,%s]", maxWorkerId));
+    }
+
+    /**
+     * @return 当前持有的租约数量
+     */
+    public int size() {
+        return (int) leases.values().stream().filter(InMemoryLease::isValid).count();
+    }
+
+    private final class InMemoryLease implements Lease {
+
+        private final long workerId;
+
+        private volatile long expiresAt;
+
+        private volatile boolean valid = true;
+
+        private InMemoryLease(long workerId, long expiresAt) {
+            this.workerId = workerId;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getWorkerId() {
+            return workerId;
+        }
+
+        @Override
+        public boolean heartbeat() {
+            synchronized (this) {
+                if (isValid() && leases.get(workerId) == this) {
+                    expiresAt = clock.getAsLong() + ttlMillis;
+                    return true;
+                }
+                valid = false;
+                return false;
+            }
+        }
+
+        @Override
+        public boolean isValid() {
+            if (valid && clock.getAsLong() > expiresAt) {
+                valid = false;
+            }
+            return valid;
+        }
+
+        @Override
+        public void release() {
+            valid = false;
+            leases.remove(workerId, this);
+        }
+
+    }
+
+}
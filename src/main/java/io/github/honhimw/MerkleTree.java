@@ -0,0 +1,425 @@
+package io.github.honhimw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Merkle树, 大文件按固定长度切分为叶子, 在{@link ForkJoinPool}上并行计算, 可以对任意字节范围单独校验.
+ * <p>
+ * 结构与RFC 6962一致: 叶子为{@code H(0x00 || data)}, 节点为{@code H(0x01 || left || right)},
+ * n个叶子时左子树取小于n的最大2的幂个叶子. 证明包含校验范围以外各子树的哈希, 长度为O(log n)
+ * <pre>{@code
+ * MerkleTree tree = MerkleTree.builder().leafSize(4 * 1024 * 1024).build(path);
+ * MerkleTree.Proof proof = tree.proof(rangeStart, rangeEnd);
+ * // 接收方只需要root及proof即可校验下载的分段
+ * MerkleTree.verify(tree.getRoot(), proof, downloaded);
+ * }</pre>
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public final class MerkleTree {
+
+    public static final int DEFAULT_LEAF_SIZE = 1024 * 1024;
+
+    private static final byte LEAF_PREFIX = 0x00;
+
+    private static final byte NODE_PREFIX = 0x01;
+
+    /**
+     * 文件按区域映射, 每个区域不超过1GB且包含整数个叶子
+     */
+    private static final long MAPPED_REGION_SIZE = 1L << 30;
+
+    private final String algorithm;
+
+    private final int leafSize;
+
+    private final long size;
+
+    private final int leafCount;
+
+    /**
+     * 按中序排列的节点: 叶子i位于2i, 在叶子s-1与s之间切分的节点位于2s-1
+     */
+    private final byte[][] nodes;
+
+    private final byte[] root;
+
+    private MerkleTree(String algorithm, int leafSize, long size, int leafCount, byte[][] nodes, byte[] root) {
+        this.algorithm = algorithm;
+        this.leafSize = leafSize;
+        this.size = size;
+        this.leafCount = leafCount;
+        this.nodes = nodes;
+        this.root = root;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getLeafSize() {
+        return leafSize;
+    }
+
+    /**
+     * @return 数据总长度
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public byte[] getRoot() {
+        return root.clone();
+    }
+
+    public String getRootHex() {
+        return HexUtils.encode(root);
+    }
+
+    public byte[] getLeafHash(int index) {
+        checkLeaf(index);
+        return nodes[index << 1].clone();
+    }
+
+    /**
+     * @param index 叶子下标
+     * @return 单个叶子的证明
+     */
+    public Proof proof(int index) {
+        checkLeaf(index);
+        return proofOfLeaves(index, index + 1);
+    }
+
+    /**
+     * 覆盖字节范围[from, to)的叶子的证明, 范围向两侧对齐到叶子边界
+     *
+     * @see Proof#offset()
+     * @see Proof#length()
+     */
+    public Proof proof(long from, long to) {
+        if (from < 0 || to > size || from >= to) {
+            throw new IndexOutOfBoundsException(String.format("range: [%s,%s), size: %s", from, to, size));
+        }
+        return proofOfLeaves((int) (from / leafSize), (int) ((to + leafSize - 1) / leafSize));
+    }
+
+    private Proof proofOfLeaves(int fromLeaf, int toLeaf) {
+        List<byte[]> hashes = new ArrayList<>();
+        collect(0, leafCount, fromLeaf, toLeaf, hashes);
+        return new Proof(algorithm, leafSize, size, fromLeaf, toLeaf, hashes);
+    }
+
+    /**
+     * 深度优先, 与校验时的消费顺序一致
+     */
+    private void collect(int a, int b, int fromLeaf, int toLeaf, List<byte[]> hashes) {
+        if (b <= fromLeaf || a >= toLeaf) {
+            hashes.add(node(a, b));
+        } else if (b - a > 1) {
+            int split = a + split(b - a);
+            collect(a, split, fromLeaf, toLeaf, hashes);
+            collect(split, b, fromLeaf, toLeaf, hashes);
+        }
+    }
+
+    private byte[] node(int a, int b) {
+        return nodes[index(a, b)];
+    }
+
+    /**
+     * @return 覆盖叶子[a, b)的子树根在nodes中的下标
+     */
+    private static int index(int a, int b) {
+        return b - a == 1 ? a << 1 : ((a + split(b - a)) << 1) - 1;
+    }
+
+    private void checkLeaf(int index) {
+        if (index < 0 || index >= leafCount) {
+            throw new IndexOutOfBoundsException(String.format("leaf index: %s, leaf count: %s", index, leafCount));
+        }
+    }
+
+    /**
+     * 校验一段数据
+     *
+     * @param root  可信的根哈希
+     * @param proof 证明
+     * @param data  从{@link Proof#offset()}开始的{@link Proof#length()}个字节, 读取position到limit之间, 不移动position;
+     *              proof中的leafSize、size应与可信的元数据一致
+     * @return 是否一致
+     */
+    public static boolean verify(byte[] root, Proof proof, ByteBuffer data) {
+        if (proof.leafSize() < 1 || proof.fromLeaf() < 0 || proof.fromLeaf() >= proof.toLeaf()
+            || proof.toLeaf() > proof.leafCount() || data.remaining() != proof.length()) {
+            return false;
+        }
+        MessageDigest messageDigest = HashUtils.localDigest(proof.algorithm());
+        Iterator<byte[]> hashes = proof.hashes().iterator();
+        Verifier verifier = new Verifier(messageDigest, proof, data.slice(), hashes);
+        byte[] computed;
+        try {
+            computed = verifier.compute(0, proof.leafCount());
+        } catch (IllegalStateException e) {
+            return false;
+        }
+        return !hashes.hasNext() && MessageDigest.isEqual(root, computed);
+    }
+
+    public static boolean verify(byte[] root, Proof proof, byte[] data) {
+        return verify(root, proof, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * 按RFC 6962, 左子树为小于n的最大2的幂
+     */
+    private static int split(int n) {
+        return Integer.highestOneBit(n - 1);
+    }
+
+    private static byte[] hashLeaf(MessageDigest messageDigest, ByteBuffer leaf) {
+        messageDigest.update(LEAF_PREFIX);
+        messageDigest.update(leaf);
+        return messageDigest.digest();
+    }
+
+    private static byte[] hashNode(MessageDigest messageDigest, byte[] left, byte[] right) {
+        messageDigest.update(NODE_PREFIX);
+        messageDigest.update(left);
+        messageDigest.update(right);
+        return messageDigest.digest();
+    }
+
+    private static final class Verifier {
+
+        private final MessageDigest messageDigest;
+
+        private final Proof proof;
+
+        private final ByteBuffer data;
+
+        private final Iterator<byte[]> hashes;
+
+        private Verifier(MessageDigest messageDigest, Proof proof, ByteBuffer data, Iterator<byte[]> hashes) {
+            this.messageDigest = messageDigest;
+            this.proof = proof;
+            this.data = data;
+            this.hashes = hashes;
+        }
+
+        private byte[] compute(int a, int b) {
+            if (b <= proof.fromLeaf() || a >= proof.toLeaf()) {
+                if (!hashes.hasNext()) {
+                    throw new IllegalStateException("proof too short");
+                }
+                return hashes.next();
+            }
+            if (b - a == 1) {
+                long offset = (long) (a - proof.fromLeaf()) * proof.leafSize();
+                int length = (int) Math.min(proof.leafSize(), proof.length() - offset);
+                return hashLeaf(messageDigest, data.slice((int) offset, length));
+            }
+            int split = a + split(b - a);
+            byte[] left = compute(a, split);
+            byte[] right = compute(split, b);
+            return hashNode(messageDigest, left, right);
+        }
+
+    }
+
+    /**
+     * @param algorithm 摘要算法
+     * @param leafSize  叶子长度
+     * @param size      数据总长度
+     * @param fromLeaf  起始叶子(包含)
+     * @param toLeaf    结束叶子(不包含)
+     * @param hashes    范围以外各子树的哈希, 深度优先顺序
+     */
+    public record Proof(String algorithm, int leafSize, long size, int fromLeaf, int toLeaf, List<byte[]> hashes) {
+
+        public Proof {
+            hashes = Collections.unmodifiableList(new ArrayList<>(hashes));
+        }
+
+        public int leafCount() {
+            return (int) ((size + leafSize - 1) / leafSize);
+        }
+
+        /**
+         * @return 被校验数据在原始数据中的起始位置
+         */
+        public long offset() {
+            return (long) fromLeaf * leafSize;
+        }
+
+        /**
+         * @return 被校验数据的长度
+         */
+        public long length() {
+            return Math.min((long) toLeaf * leafSize, size) - offset();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Proof{algorithm=%s, leafSize=%s, size=%s, leaves=[%s,%s), hashes=%s}",
+                algorithm, leafSize, size, fromLeaf, toLeaf, hashes.size());
+        }
+
+    }
+
+    public static final class Builder {
+
+        private int leafSize = DEFAULT_LEAF_SIZE;
+
+        private String algorithm = HashUtils.SHA256;
+
+        private ForkJoinPool pool;
+
+        private Builder() {
+        }
+
+        public Builder leafSize(int leafSize) {
+            if (leafSize < 1) {
+                throw new IllegalArgumentException("leaf size can't be less than 1");
+            }
+            this.leafSize = leafSize;
+            return this;
+        }
+
+        /**
+         * @param algorithm 摘要算法, 见{@link HashUtils}
+         */
+        public Builder algorithm(String algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * @param pool 计算叶子哈希的线程池, 默认{@link ForkJoinPool#commonPool()}
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public MerkleTree build(byte[] data) {
+            return build(ByteBuffer.wrap(data));
+        }
+
+        /**
+         * 读取position到limit之间的数据, 不移动position
+         */
+        public MerkleTree build(ByteBuffer data) {
+            ByteBuffer slice = data.slice();
+            return build(slice.remaining(), index -> {
+                int offset = (int) ((long) index * leafSize);
+                return slice.slice(offset, Math.min(leafSize, slice.limit() - offset));
+            });
+        }
+
+        /**
+         * 内存映射读取整个文件
+         */
+        public MerkleTree build(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long leavesPerRegion = Math.max(1, MAPPED_REGION_SIZE / leafSize);
+                long regionSize = leavesPerRegion * leafSize;
+                ByteBuffer[] regions = new ByteBuffer[(int) ((size + regionSize - 1) / regionSize)];
+                for (int i = 0; i < regions.length; i++) {
+                    long position = i * regionSize;
+                    regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+                }
+                return build(size, index -> {
+                    ByteBuffer region = regions[(int) (index / leavesPerRegion)];
+                    int offset = (int) (index % leavesPerRegion * leafSize);
+                    return region.slice(offset, Math.min(leafSize, region.limit() - offset));
+                });
+            }
+        }
+
+        private MerkleTree build(long size, LeafSource source) {
+            long count = (size + leafSize - 1) / leafSize;
+            if (count > Integer.MAX_VALUE >> 1) {
+                throw new IllegalArgumentException(String.format("too many leaves: %s, increase leaf size", count));
+            }
+            int leafCount = (int) count;
+            if (leafCount == 0) {
+                byte[] empty = HashUtils.newDigest(algorithm).digest();
+                return new MerkleTree(algorithm, leafSize, 0, 0, new byte[0][], empty);
+            }
+            // 提前校验算法
+            HashUtils.newDigest(algorithm);
+            byte[][] nodes = new byte[(leafCount << 1) - 1][];
+            ForkJoinPool forkJoinPool = pool != null ? pool : ForkJoinPool.commonPool();
+            forkJoinPool.invoke(new BuildTask(algorithm, source, nodes, 0, leafCount));
+            byte[] root = nodes[index(0, leafCount)];
+            return new MerkleTree(algorithm, leafSize, size, leafCount, nodes, root);
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface LeafSource {
+
+        ByteBuffer leaf(int index);
+
+    }
+
+    private static final class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String algorithm;
+
+        private final LeafSource source;
+
+        private final byte[][] nodes;
+
+        private final int from;
+
+        private final int to;
+
+        private BuildTask(String algorithm, LeafSource source, byte[][] nodes, int from, int to) {
+            this.algorithm = algorithm;
+            this.source = source;
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                nodes[from << 1] = hashLeaf(HashUtils.localDigest(algorithm), source.leaf(from));
+                return;
+            }
+            int split = from + split(to - from);
+            invokeAll(new BuildTask(algorithm, source, nodes, from, split), new BuildTask(algorithm, source, nodes, split, to));
+            // 子任务已完成, join保证了可见性
+            nodes[index(from, to)] = hashNode(HashUtils.localDigest(algorithm), nodes[index(from, split)], nodes[index(split, to)]);
+        }
+
+    }
+
+}
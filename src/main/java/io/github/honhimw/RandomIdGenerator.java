@@ -0,0 +1,199 @@
+package io.github.honhimw;
+
+import io.github.honhimw.RandomUtils.Strength;
+
+import java.util.random.RandomGenerator;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * nanoid风格的随机字符串ID生成器, 根据目标熵计算长度, 并可估算给定数量下的碰撞概率.
+ * <p>
+ * 按字节取随机数, 与上覆盖字符表长度的最小掩码后丢弃超出的值, 保证每个字符等概率
+ * <pre>{@code
+ * RandomIdGenerator generator = RandomIdGenerator.of(RandomUtils.NUMBER_LETTER_CHARS, 96);
+ * generator.length();                              // 17
+ * generator.collisionProbability(1_000_000_000L);  // ~1.7e-13
+ * }</pre>
+ *
+ * @author hon_him
+ * @since 2026-10-18
+ */
+@SuppressWarnings("unused")
+public final class RandomIdGenerator {
+
+    private final char[] alphabet;
+
+    // 全部为Latin-1字符时的byte形式, 否则为null
+    private final byte[] latin1;
+
+    private final int length;
+
+    private final int mask;
+
+    // 每批读取的随机字节数
+    private final int step;
+
+    private final Strength strength;
+
+    private final ThreadLocal<byte[]> buffers;
+
+    private RandomIdGenerator(char[] alphabet, int length, Strength strength) {
+        if (alphabet.length < 2 || alphabet.length > 256) {
+            throw new IllegalArgumentException("alphabet size range [2,256]");
+        }
+        if (length < 1) {
+            throw new IllegalArgumentException("length can't be less than 1");
+        }
+        boolean isLatin1 = true;
+        for (int i = 0; i < alphabet.length; i++) {
+            isLatin1 &= alphabet[i] <= 0xFF;
+            for (int j = 0; j < i; j++) {
+                if (alphabet[i] == alphabet[j]) {
+                    throw new IllegalArgumentException(String.format("duplicate character in alphabet: '%s'", alphabet[i]));
+                }
+            }
+        }
+        this.alphabet = alphabet.clone();
+        if (isLatin1) {
+            latin1 = new byte[alphabet.length];
+            for (int i = 0; i < alphabet.length; i++) {
+                latin1[i] = (byte) alphabet[i];
+            }
+        } else {
+            latin1 = null;
+        }
+        this.length = length;
+        this.mask = (2 << (31 - Integer.numberOfLeadingZeros(alphabet.length - 1))) - 1;
+        // 与nanoid相同, 按期望拒绝率多取一些, 通常一批即可
+        this.step = (int) Math.ceil(1.6 * mask * length / alphabet.length);
+        this.strength = strength;
+        this.buffers = ThreadLocal.withInitial(() -> new byte[step]);
+    }
+
+    /**
+     * @param alphabet    字符表, 2~256个不重复字符
+     * @param entropyBits 目标熵(位), 长度向上取整
+     */
+    public static RandomIdGenerator of(char[] alphabet, int entropyBits) {
+        return of(alphabet, entropyBits, Strength.SECURE);
+    }
+
+    public static RandomIdGenerator of(char[] alphabet, int entropyBits, Strength strength) {
+        if (entropyBits < 1) {
+            throw new IllegalArgumentException("entropy bits can't be less than 1");
+        }
+        double bitsPerChar = log2(alphabet.length);
+        return new RandomIdGenerator(alphabet, (int) Math.ceil(entropyBits / bitsPerChar - 1e-9), strength);
+    }
+
+    /**
+     * @param alphabet 字符表, 2~256个不重复字符
+     * @param length   固定长度
+     */
+    public static RandomIdGenerator ofLength(char[] alphabet, int length, Strength strength) {
+        return new RandomIdGenerator(alphabet, length, strength);
+    }
+
+    public String next() {
+        if (latin1 != null) {
+            byte[] bs = new byte[length];
+            fill(bs, null, 0);
+            return new String(bs, ISO_8859_1);
+        }
+        char[] cs = new char[length];
+        fill(null, cs, 0);
+        return new String(cs);
+    }
+
+    /**
+     * 写入调用方提供的缓冲区
+     *
+     * @param dst    目标数组, 需要{@link #length()}个位置
+     * @param offset 起始下标
+     */
+    public void next(char[] dst, int offset) {
+        if (offset < 0 || offset > dst.length - length) {
+            throw new IndexOutOfBoundsException(
+                String.format("offset: %s, length: %s, array length: %s", offset, length, dst.length));
+        }
+        fill(null, dst, offset);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int alphabetSize() {
+        return alphabet.length;
+    }
+
+    /**
+     * @return 实际熵(位) = length * log2(alphabetSize)
+     */
+    public double entropyBits() {
+        return length * log2(alphabet.length);
+    }
+
+    /**
+     * 生日问题近似: n个ID中期望的碰撞对数 n(n-1)/2N
+     *
+     * @param count ID数量
+     */
+    public double expectedCollisions(long count) {
+        return (double) count * (count - 1) / 2 / space();
+    }
+
+    /**
+     * 生日问题近似: n个ID中至少出现一次碰撞的概率 1 - e^(-n(n-1)/2N)
+     *
+     * @param count ID数量
+     */
+    public double collisionProbability(long count) {
+        return -Math.expm1(-expectedCollisions(count));
+    }
+
+    /**
+     * @param probability 可接受的碰撞概率, (0,1)
+     * @return 碰撞概率不超过probability时最多可生成的ID数量
+     */
+    public long maxCount(double probability) {
+        if (!(probability > 0 && probability < 1)) {
+            throw new IllegalArgumentException("probability range (0,1)");
+        }
+        double count = Math.sqrt(2 * space() * -Math.log1p(-probability));
+        return count >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) count;
+    }
+
+    /**
+     * @return 可能的ID总数 N = alphabetSize^length
+     */
+    private double space() {
+        return Math.pow(alphabet.length, length);
+    }
+
+    private void fill(byte[] bytes, char[] chars, int offset) {
+        final RandomGenerator random = strength.generator();
+        final byte[] buffer = buffers.get();
+        final int n = alphabet.length;
+        final int end = offset + length;
+        while (offset < end) {
+            random.nextBytes(buffer);
+            for (int i = 0; i < buffer.length && offset < end; i++) {
+                int index = buffer[i] & mask;
+                if (index < n) {
+                    if (bytes != null) {
+                        bytes[offset++] = latin1[index];
+                    } else {
+                        chars[offset++] = alphabet[index];
+                    }
+                }
+            }
+        }
+    }
+
+    private static double log2(int n) {
+        return Math.log(n) / Math.log(2);
+    }
+
+}
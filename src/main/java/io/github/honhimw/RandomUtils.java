@@ -2,17 +2,23 @@ package io.github.honhimw;
 
 import org.apache.commons.lang3.RandomStringUtils;
 
-import java.math.BigInteger;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 
 /**
  * {@link RandomStringUtils}
+ * <p>
+ * 所有方法通过{@link Strength}获取当前线程独占的随机数生成器, 线程之间没有竞争
  *
  * @author hon_him
  * @since 2022-06-14
@@ -32,7 +38,15 @@ public class RandomUtils {
 
     private static final int count;
 
-    private static final Map<Character, boolean[]> HEXA_DECIMAL_CHARS_MAP = new HashMap<>();
+    /**
+     * 12位 -> NUMBER_LETTER_CHARS[x % 62]
+     */
+    private static final byte[] SHORT_UUID_TABLE;
+
+    /**
+     * 6位 -> NUMBER_LETTER_CHARS[x >= 62 ? x - 62 : x]
+     */
+    private static final byte[] FIXED_UUID_TABLE;
 
     private static volatile int DEFAULT_LENGTH = 10;
 
@@ -74,38 +88,14 @@ public class RandomUtils {
         SYMBOL_CHARS = new char[]{'!', '@', '#', '$', '%', '^', '&', '-', '_', '=', '+', '\'', '"', ';', ':'};
 
         count = NUMBER_LETTER_CHARS.length;
-        boolean[] _0 = new boolean[]{false, false, false, false};
-        boolean[] _1 = new boolean[]{false, false, false, true};
-        boolean[] _2 = new boolean[]{false, false, true, false};
-        boolean[] _3 = new boolean[]{false, false, true, true};
-        boolean[] _4 = new boolean[]{false, true, false, false};
-        boolean[] _5 = new boolean[]{false, true, false, true};
-        boolean[] _6 = new boolean[]{false, true, true, false};
-        boolean[] _7 = new boolean[]{false, true, true, true};
-        boolean[] _8 = new boolean[]{true, false, false, false};
-        boolean[] _9 = new boolean[]{true, false, false, true};
-        boolean[] _a = new boolean[]{true, false, true, false};
-        boolean[] _b = new boolean[]{true, false, true, true};
-        boolean[] _c = new boolean[]{true, true, false, false};
-        boolean[] _d = new boolean[]{true, true, false, true};
-        boolean[] _e = new boolean[]{true, true, true, false};
-        boolean[] _f = new boolean[]{true, true, true, true};
-        HEXA_DECIMAL_CHARS_MAP.put('0', _0);
-        HEXA_DECIMAL_CHARS_MAP.put('1', _1);
-        HEXA_DECIMAL_CHARS_MAP.put('2', _2);
-        HEXA_DECIMAL_CHARS_MAP.put('3', _3);
-        HEXA_DECIMAL_CHARS_MAP.put('4', _4);
-        HEXA_DECIMAL_CHARS_MAP.put('5', _5);
-        HEXA_DECIMAL_CHARS_MAP.put('6', _6);
-        HEXA_DECIMAL_CHARS_MAP.put('7', _7);
-        HEXA_DECIMAL_CHARS_MAP.put('8', _8);
-        HEXA_DECIMAL_CHARS_MAP.put('9', _9);
-        HEXA_DECIMAL_CHARS_MAP.put('a', _a);
-        HEXA_DECIMAL_CHARS_MAP.put('b', _b);
-        HEXA_DECIMAL_CHARS_MAP.put('c', _c);
-        HEXA_DECIMAL_CHARS_MAP.put('d', _d);
-        HEXA_DECIMAL_CHARS_MAP.put('e', _e);
-        HEXA_DECIMAL_CHARS_MAP.put('f', _f);
+        SHORT_UUID_TABLE = new byte[1 << 12];
+        for (int i = 0; i < SHORT_UUID_TABLE.length; i++) {
+            SHORT_UUID_TABLE[i] = (byte) NUMBER_LETTER_CHARS[i % count];
+        }
+        FIXED_UUID_TABLE = new byte[1 << 6];
+        for (int i = 0; i < FIXED_UUID_TABLE.length; i++) {
+            FIXED_UUID_TABLE[i] = (byte) NUMBER_LETTER_CHARS[i >= count ? i - count : i];
+        }
     }
 
     /**
@@ -116,7 +106,7 @@ public class RandomUtils {
     }
 
     /**
-     * 不限长度, {@link ThreadLocalRandom}
+     * 不限长度, {@link Strength#FAST}
      *
      * @param length 长度
      */
@@ -125,26 +115,125 @@ public class RandomUtils {
     }
 
     public static String randomId(int length, char[] chars) {
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-        char[] cs = new char[length];
-        for (int i = 0; i < cs.length; i++) {
-            cs[i] = chars[random.nextInt(chars.length)];
+        return randomId(length, chars, Strength.FAST);
+    }
+
+    /**
+     * 每次取64位随机数提取多个字符, 字符表全部为Latin-1字符时直接由byte[]构造字符串
+     */
+    public static String randomId(int length, char[] chars, Strength strength) {
+        Alphabet alphabet = Alphabet.of(chars);
+        RandomGenerator random = strength.generator();
+        if (alphabet.latin1 != null) {
+            byte[] bs = new byte[length];
+            alphabet.fill(random, bs, 0, length);
+            return new String(bs, ISO_8859_1);
         }
+        char[] cs = new char[length];
+        alphabet.fill(random, cs, 0, length);
         return new String(cs);
     }
 
+    /**
+     * 填充调用方提供的缓冲区
+     *
+     * @param dst    目标数组
+     * @param offset 起始下标
+     * @param length 长度
+     * @param chars  字符表
+     */
+    public static void randomId(char[] dst, int offset, int length, char[] chars, Strength strength) {
+        checkBounds(dst.length, offset, length);
+        Alphabet.of(chars).fill(strength.generator(), dst, offset, length);
+    }
+
+    /**
+     * 填充调用方提供的缓冲区, 字符表只能包含Latin-1字符
+     *
+     * @param dst    目标数组
+     * @param offset 起始下标
+     * @param length 长度
+     * @param chars  字符表
+     */
+    public static void randomId(byte[] dst, int offset, int length, char[] chars, Strength strength) {
+        checkBounds(dst.length, offset, length);
+        Alphabet alphabet = Alphabet.of(chars);
+        if (alphabet.latin1 == null) {
+            throw new IllegalArgumentException("chars contain non Latin-1 character");
+        }
+        alphabet.fill(strength.generator(), dst, offset, length);
+    }
+
+    /**
+     * 批量生成
+     *
+     * @param count  数量
+     * @param length 长度
+     * @param chars  字符表
+     */
+    public static String[] randomIds(int count, int length, char[] chars) {
+        String[] ids = new String[count];
+        randomIds(ids, length, chars, Strength.FAST);
+        return ids;
+    }
+
+    /**
+     * 批量生成, 填满dst
+     *
+     * @param dst    目标数组
+     * @param length 长度
+     * @param chars  字符表
+     */
+    public static void randomIds(String[] dst, int length, char[] chars, Strength strength) {
+        Alphabet alphabet = Alphabet.of(chars);
+        RandomGenerator random = strength.generator();
+        if (alphabet.latin1 != null) {
+            byte[] bs = new byte[length];
+            for (int i = 0; i < dst.length; i++) {
+                alphabet.fill(random, bs, 0, length);
+                dst[i] = new String(bs, ISO_8859_1);
+            }
+        } else {
+            char[] cs = new char[length];
+            for (int i = 0; i < dst.length; i++) {
+                alphabet.fill(random, cs, 0, length);
+                dst[i] = new String(cs);
+            }
+        }
+    }
+
+    private static void checkBounds(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException(
+                String.format("offset: %s, length: %s, array length: %s", offset, length, arrayLength));
+        }
+    }
+
     /**
      * 默认生成长度10位大小写
      */
     public static String shortUUID() {
-        char[] uuidChar = new char[10];
-        String uuid = UUID.randomUUID().toString().replace("-", "");
-        for (int i = 0; i < 10; i++) {
-            String str = uuid.substring(i * 3, i * 3 + 3);
-            int x = Integer.parseInt(str, 16);
-            uuidChar[i] = NUMBER_LETTER_CHARS[x % count];
+        return shortUUID(Strength.SECURE);
+    }
+
+    public static String shortUUID(Strength strength) {
+        RandomGenerator random = strength.generator();
+        return shortUUID(uuidV4Msb(random.nextLong()), uuidV4Lsb(random.nextLong()));
+    }
+
+    /**
+     * 依次取版本4 UUID的前120位, 每12位查表得到一个字符
+     */
+    private static String shortUUID(long msb, long lsb) {
+        byte[] bs = new byte[10];
+        for (int i = 0; i < 5; i++) {
+            bs[i] = SHORT_UUID_TABLE[(int) (msb >>> (52 - 12 * i)) & 0xFFF];
+        }
+        bs[5] = SHORT_UUID_TABLE[(int) ((msb & 0xF) << 8 | lsb >>> 56)];
+        for (int i = 6; i < 10; i++) {
+            bs[i] = SHORT_UUID_TABLE[(int) (lsb >>> (116 - 12 * i)) & 0xFFF];
         }
-        return String.valueOf(uuidChar);
+        return new String(bs, ISO_8859_1);
     }
 
     /**
@@ -153,63 +242,363 @@ public class RandomUtils {
      * @param length 长度
      */
     public static String fixedUUID(int length) {
+        return fixedUUID(length, Strength.SECURE);
+    }
+
+    public static String fixedUUID(int length, Strength strength) {
         if (length < 1 || length > 21) {
             throw new IllegalArgumentException("UUID长度范围[1,21]");
         }
-        char[] bits = new char[6];
-        String uuid = UUID.randomUUID().toString();
-        char[] cs = uuid.toCharArray();
-        int site = 0;
-        char[] css = new char[length];
-        int cursor = 0;
-        for (char c : cs) {
-            boolean[] booleans = HEXA_DECIMAL_CHARS_MAP.get(c);
-            if (booleans == null) {
-                continue;
-            }
-            for (int i = 0; i < 4; i++) {
-                bits[site++] = booleans[i] ? '1' : '0';
-                if (site == 6) {
-                    int j = Integer.parseInt(String.valueOf(bits), 2);
-                    j = j >= count ? j - count : j;
-                    css[cursor++] = NUMBER_LETTER_CHARS[j];
-                    site = 0;
+        RandomGenerator random = strength.generator();
+        return fixedUUID(uuidV4Msb(random.nextLong()), uuidV4Lsb(random.nextLong()), length);
+    }
+
+    /**
+     * 依次取版本4 UUID的每6位查表得到一个字符
+     */
+    private static String fixedUUID(long msb, long lsb, int length) {
+        byte[] bs = new byte[length];
+        for (int i = 0, start = 0; i < length; i++, start += 6) {
+            int j;
+            if (start <= 58) {
+                j = (int) (msb >>> (58 - start)) & 0x3F;
+            } else if (start >= 64) {
+                j = (int) (lsb >>> (122 - start)) & 0x3F;
+            } else {
+                // 跨越高低64位
+                j = (int) ((msb & 0xF) << 2 | lsb >>> 62);
+            }
+            bs[i] = FIXED_UUID_TABLE[j];
+        }
+        return new String(bs, ISO_8859_1);
+    }
+
+    /**
+     * 128位随机数, 不设置版本与变体
+     */
+    public static UUID uuid() {
+        return uuid(Strength.FAST);
+    }
+
+    public static UUID uuid(Strength strength) {
+        RandomGenerator random = strength.generator();
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    /**
+     * 与{@link UUID#randomUUID()}格式相同的版本4 UUID
+     */
+    public static UUID randomUUID(Strength strength) {
+        RandomGenerator random = strength.generator();
+        return new UUID(uuidV4Msb(random.nextLong()), uuidV4Lsb(random.nextLong()));
+    }
+
+    private static long uuidV4Msb(long random) {
+        return (random & ~0xF000L) | 0x4000L;
+    }
+
+    /**
+     * 设置变体位, 版本4与版本7相同
+     */
+    private static long uuidV4Lsb(long random) {
+        return (random & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    }
+
+    /**
+     * @return 当前线程的{@link Strength#FAST}生成器, 不要跨线程使用
+     */
+    public static RandomGenerator random() {
+        return Strength.FAST.generator();
+    }
+
+    /**
+     * @return 当前线程的生成器, 不要跨线程使用
+     */
+    public static RandomGenerator random(Strength strength) {
+        return strength.generator();
+    }
+
+    /**
+     * 字符表, 每个字符占用bits位, 每64位随机数可提取64/bits个候选下标, 超出字符表长度的候选直接丢弃以保证均匀分布
+     */
+    private static final class Alphabet {
+
+        /**
+         * 内置字符表预先计算, 其余字符表每次调用时计算
+         */
+        private static final Alphabet[] BUILTIN = {
+            new Alphabet(NUMBER_LETTER_CHARS), new Alphabet(NUMBER_CHARS), new Alphabet(LOWER_LETTER_CHARS),
+            new Alphabet(UPPER_LETTER_CHARS), new Alphabet(LETTER_CHARS), new Alphabet(SYMBOL_CHARS),
+        };
+
+        private final char[] chars;
+
+        // 全部为Latin-1字符时的byte形式, 否则为null
+        private final byte[] latin1;
+
+        private final int bits;
+
+        private final int mask;
+
+        private final int perDraw;
+
+        private Alphabet(char[] chars) {
+            if (chars.length == 0) {
+                throw new IllegalArgumentException("chars can't be empty");
+            }
+            this.chars = chars;
+            byte[] bs = new byte[chars.length];
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] > 0xFF) {
+                    bs = null;
+                    break;
                 }
+                bs[i] = (byte) chars[i];
             }
-            if (cursor == length) {
-                break;
+            this.latin1 = bs;
+            this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(chars.length - 1));
+            this.mask = (1 << bits) - 1;
+            this.perDraw = 64 / bits;
+        }
+
+        private static Alphabet of(char[] chars) {
+            for (Alphabet alphabet : BUILTIN) {
+                if (alphabet.chars == chars) {
+                    return alphabet;
+                }
             }
+            return new Alphabet(chars);
         }
-        return String.valueOf(css);
+
+        private void fill(RandomGenerator random, char[] dst, int offset, int length) {
+            final int n = chars.length;
+            final int end = offset + length;
+            while (offset < end) {
+                long r = random.nextLong();
+                for (int k = 0; k < perDraw && offset < end; k++, r >>>= bits) {
+                    int index = (int) r & mask;
+                    if (index < n) {
+                        dst[offset++] = chars[index];
+                    }
+                }
+            }
+        }
+
+        private void fill(RandomGenerator random, byte[] dst, int offset, int length) {
+            final int n = chars.length;
+            final int end = offset + length;
+            while (offset < end) {
+                long r = random.nextLong();
+                for (int k = 0; k < perDraw && offset < end; k++, r >>>= bits) {
+                    int index = (int) r & mask;
+                    if (index < n) {
+                        dst[offset++] = latin1[index];
+                    }
+                }
+            }
+        }
+
     }
 
-    private static final Random random;
+    /**
+     * 随机数强度
+     */
+    public enum Strength {
+
+        /**
+         * 线程独占的L64X128MixRandom(不可用时为{@link SplittableRandom}), 不适用于安全场景
+         */
+        FAST {
+            private final ThreadLocal<RandomGenerator> generators = ThreadLocal.withInitial(Strength::newFastGenerator);
+
+            @Override
+            public RandomGenerator generator() {
+                return generators.get();
+            }
+        },
+
+        /**
+         * 线程独占并带缓冲的{@link SecureRandom}, 每个线程只在创建时获取一次种子
+         */
+        SECURE {
+            private final ThreadLocal<RandomGenerator> generators = ThreadLocal.withInitial(BufferedSecureRandom::new);
+
+            @Override
+            public RandomGenerator generator() {
+                return generators.get();
+            }
+        };
+
+        private static final SplittableRandom SEEDS = new SplittableRandom(new SecureRandom().nextLong());
+
+        /**
+         * @return 当前线程的生成器, 不要跨线程使用
+         */
+        public abstract RandomGenerator generator();
+
+        private static RandomGenerator newFastGenerator() {
+            long seed;
+            synchronized (SEEDS) {
+                seed = SEEDS.nextLong();
+            }
+            try {
+                return RandomGeneratorFactory.of("L64X128MixRandom").create(seed);
+            } catch (IllegalArgumentException e) {
+                return new SplittableRandom(seed);
+            }
+        }
 
-    static {
-        SecureRandom secureRandom = new SecureRandom();
-        byte[] seed = new byte[8];
-        secureRandom.nextBytes(seed);
-        random = new Random(new BigInteger(seed).longValue());
     }
 
-    public static UUID uuid() {
-        byte[] randomBytes = new byte[16];
-        random.nextBytes(randomBytes);
+    /**
+     * 批量读取{@link SecureRandom}并缓存, 减少每次调用的同步与熵源访问开销
+     */
+    private static final class BufferedSecureRandom implements RandomGenerator {
+
+        private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+        private static final int BUFFER_SIZE = 256;
+
+        private final SecureRandom secureRandom;
 
-        long mostSigBits = 0;
-        for (int i = 0; i < 8; i++) {
-            mostSigBits = (mostSigBits << 8) | (randomBytes[i] & 0xff);
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int position = BUFFER_SIZE;
+
+        private BufferedSecureRandom() {
+            SecureRandom sr;
+            try {
+                sr = SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                sr = new SecureRandom();
+            }
+            this.secureRandom = sr;
         }
 
-        long leastSigBits = 0;
-        for (int i = 8; i < 16; i++) {
-            leastSigBits = (leastSigBits << 8) | (randomBytes[i] & 0xff);
+        @Override
+        public long nextLong() {
+            if (position > BUFFER_SIZE - Long.BYTES) {
+                secureRandom.nextBytes(buffer);
+                position = 0;
+            }
+            long value = (long) LONG_VIEW.get(buffer, position);
+            position += Long.BYTES;
+            return value;
         }
-        return new UUID(mostSigBits, leastSigBits);
+
+        @Override
+        public void nextBytes(byte[] bytes) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (position == BUFFER_SIZE) {
+                    secureRandom.nextBytes(buffer);
+                    position = 0;
+                }
+                int n = Math.min(bytes.length - offset, BUFFER_SIZE - position);
+                System.arraycopy(buffer, position, bytes, offset, n);
+                position += n;
+                offset += n;
+            }
+        }
+
     }
 
-    public static RandomGenerator random() {
-        return ThreadLocalRandom.current();
+    /**
+     * ==================================================================================
+     * UUIDv7(RFC 9562): 48位毫秒时间戳 | 版本7 | 12位计数器 | 变体 | 62位随机数
+     * ==================================================================================
+     */
+
+    /**
+     * 高位为毫秒时间戳, 低12位为同一毫秒内的计数器, 计数器溢出时进位到时间戳, 保证进程内单调递增.
+     * 持续超过每毫秒4096个时时间戳会领先系统时间
+     */
+    private static final AtomicLong UUID_V7_STATE = new AtomicLong();
+
+    private static final long UUID_V7_COUNTER_BITS = 12L;
+
+    /**
+     * 时间有序的UUIDv7, 进程内单调递增
+     */
+    public static UUID uuidV7() {
+        long state = reserveUuidV7(1);
+        return new UUID(uuidV7Msb(state), uuidV4Lsb(Strength.FAST.generator().nextLong()));
     }
 
+    /**
+     * 批量生成UUIDv7
+     *
+     * @param n 数量
+     * @return 按生成顺序排列的UUID
+     */
+    public static UUID[] uuidV7(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n can't be less than 0");
+        }
+        UUID[] uuids = new UUID[n];
+        if (n == 0) {
+            return uuids;
+        }
+        long state = reserveUuidV7(n);
+        RandomGenerator random = Strength.FAST.generator();
+        for (int i = 0; i < n; i++) {
+            uuids[i] = new UUID(uuidV7Msb(state + i), uuidV4Lsb(random.nextLong()));
+        }
+        return uuids;
+    }
+
+    /**
+     * 批量生成UUIDv7, 不创建{@link UUID}对象, 依次写入高64位与低64位
+     *
+     * @param dst    目标数组, 每个UUID占用2个元素
+     * @param offset 起始下标
+     * @param count  UUID数量
+     */
+    public static void uuidV7(long[] dst, int offset, int count) {
+        if (offset < 0 || count < 0 || offset > dst.length - 2L * count) {
+            throw new IndexOutOfBoundsException(
+                String.format("offset: %s, count: %s, array length: %s", offset, count, dst.length));
+        }
+        if (count == 0) {
+            return;
+        }
+        long state = reserveUuidV7(count);
+        RandomGenerator random = Strength.FAST.generator();
+        for (int i = 0; i < count; i++) {
+            dst[offset++] = uuidV7Msb(state + i);
+            dst[offset++] = uuidV4Lsb(random.nextLong());
+        }
+    }
+
+    /**
+     * @param uuid UUIDv7
+     * @return 生成时间, 毫秒
+     */
+    public static long uuidV7Timestamp(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("not a version 7 UUID: " + uuid);
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    /**
+     * 一次CAS预留n个连续的状态, 当前毫秒的计数器不足时借用后续毫秒, 不会阻塞
+     *
+     * @return 第一个状态
+     */
+    private static long reserveUuidV7(int n) {
+        for (; ; ) {
+            final long current = UUID_V7_STATE.get();
+            final long first = Math.max(System.currentTimeMillis() << UUID_V7_COUNTER_BITS, current + 1);
+            if (UUID_V7_STATE.compareAndSet(current, first + n - 1)) {
+                return first;
+            }
+        }
+    }
+
+    private static long uuidV7Msb(long state) {
+        return ((state >>> UUID_V7_COUNTER_BITS) << 16) | 0x7000L | (state & 0xFFFL);
+    }
+
+
 }
@@ -1,9 +1,34 @@
 package io.github.honhimw;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Twitter雪花算法, 调整了{@link #workerIdBits}和{@link #dataCenterIdBits}大小
+ * <p>
+ * 时间戳与序列号打包在同一个long中(前后填充, 独占缓存行), 通过CAS无锁生成,
+ * {@link #nextIds(long[], int, int)}一次CAS预留一段连续的序列号
+ * <p>
+ * 默认模式下序列耗尽时短暂自旋后park到下一个时间戳, 超过2秒的时钟回拨直接报错;
+ * 借用时间模式({@link #getBorrowedTimeInstance(long, long, long, long)})下序列耗尽时逻辑时间戳直接前进一毫秒,
+ * 时钟回拨时沿用逻辑时间戳, 不会阻塞也不会报错. 逻辑时间领先系统时间超过maxLookAheadMillis(回拨幅度大于该值, 或持续超出单位时间的序列容量)时
+ * 仍继续借用, 每借用一个时间戳计一次{@link #getOverrunCount()}, 领先量记录在{@link #getMaxDriftMillis()}, 由调用方监控告警
+ * <p>
+ * 各字段位数, 起始时间和时间戳单位由{@link Layout}定义, 默认为41位时间戳(毫秒), 2位数据中心, 8位机器节点, 12位序列号
+ * <p>
+ * 机器节点id可通过{@link WorkerIdAllocator}租用, 租约失效后拒绝生成ID
  * <a href="https://github.com/dromara/hutool/blob/56a2819861/hutool-core/src/main/java/cn/hutool/core/lang/Snowflake.java"/>
  *
  * @author hon_him
@@ -12,54 +37,136 @@ import java.io.Serializable;
 @SuppressWarnings("unused")
 public class SnowflakeUtils implements Serializable {
 
+    private final Layout layout;
+    // 以下字段均从layout展开, 生成ID时不再经过layout间接访问
     private final long twepoch;
-    private final long workerIdBits = 8L;
-    // 最大支持机器节点数0~31，一共32个
-    @SuppressWarnings({"PointlessBitwiseExpression", "FieldCanBeLocal"})
-    private final long maxWorkerId = -1L ^ (-1L << workerIdBits);
-    private final long dataCenterIdBits = 2L;
-    // 最大支持数据中心节点数0~31，一共32个
-    @SuppressWarnings({"PointlessBitwiseExpression", "FieldCanBeLocal"})
-    private final long maxDataCenterId = -1L ^ (-1L << dataCenterIdBits);
-    // 序列号12位
-    private final long sequenceBits = 12L;
-    // 机器节点左移12位
-    private final long workerIdShift = sequenceBits;
-    // 数据中心节点左移17位
-    private final long dataCenterIdShift = sequenceBits + workerIdBits;
-    // 时间毫秒数左移22位
-    private final long timestampLeftShift = sequenceBits + workerIdBits + dataCenterIdBits;
-    // 序列掩码，用于限定序列最大值不能超过4095
-    @SuppressWarnings("FieldCanBeLocal")
-    private final long sequenceMask = ~(-1L << sequenceBits);// 4095
+    // 时间戳单位的毫秒数
+    private final long tickMillis;
+    private final long workerIdBits;
+    private final long maxWorkerId;
+    private final long dataCenterIdBits;
+    private final long maxDataCenterId;
+    private final long sequenceBits;
+    private final long workerIdShift;
+    private final long dataCenterIdShift;
+    private final long timestampLeftShift;
+    private final long sequenceMask;
+    private final long maxTimestamp;
 
     private final long workerId;
     private final long dataCenterId;
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
+    // 数据中心与机器节点部分, 构造时预先计算
+    private final long nodeBits;
+    // 高位为相对twepoch的时间戳, 低sequenceBits位为序列号
+    private final State state;
+    // 逻辑时间允许领先系统时间的时间戳单位数, 小于0为默认模式
+    private final long maxLookAhead;
+    // 借用时间模式下的统计
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder overrunCount = new LongAdder();
+    private final AtomicLong maxDrift = new AtomicLong();
+    // 机器节点id租约, 未使用WorkerIdAllocator时为null
+    private final transient LeaseHandle lease;
 
+    // 序列耗尽时park前的自旋次数
+    private static final int SPINS = 64;
+
+    /**
+     * 共享的租约目录, {@link #getInstance(long)}从该目录通过文件锁租用机器节点id; 所有实例必须能访问同一目录
+     */
+    public static final String LEASE_DIR_PROPERTY = "snowflake.worker-id.lease-dir";
+
+    /**
+     * @see #getInstance(long)
+     */
     public static SnowflakeUtils getInstance() {
-        return getInstance(1658914580040L);
+        return getInstance(Layout.DEFAULT_EPOCH);
     }
+
+    /**
+     * 从{@link #LEASE_DIR_PROPERTY}指定的共享目录租用机器节点id.
+     * 不再根据IP推断, 也不回退到本机临时目录(各主机互不可见, 会分配到相同的id), 未设置时直接报错,
+     * 此时需通过{@link #getInstance(long, WorkerIdAllocator)}指定分配方式或显式指定workerId
+     *
+     * @throws IllegalStateException 未设置{@link #LEASE_DIR_PROPERTY}
+     */
     public static SnowflakeUtils getInstance(long twepoch) {
-        String ipv4 = IpUtils.localIPv4();
-        String id3 = ipv4.split("\\.")[3];
-        return getInstance(twepoch, Long.parseLong(id3), 0L);
+        String leaseDir = System.getProperty(LEASE_DIR_PROPERTY);
+        if (leaseDir == null || leaseDir.isBlank()) {
+            throw new IllegalStateException(String.format(
+                "worker id not configured, set system property [%s] to a lease directory shared by all instances, "
+                    + "or specify a WorkerIdAllocator / workerId explicitly", LEASE_DIR_PROPERTY));
+        }
+        return getInstance(twepoch, new FileLockWorkerIdAllocator(Path.of(leaseDir)));
+    }
+
+    public static SnowflakeUtils getInstance(long twepoch, WorkerIdAllocator allocator) {
+        return builder().layout(Layout.builder().epoch(twepoch).build()).workerIdAllocator(allocator).build();
     }
 
     public static SnowflakeUtils getInstance(long twepoch, long workerId, long dataCenterId) {
-        return new SnowflakeUtils(twepoch, workerId, dataCenterId);
+        return builder().layout(Layout.builder().epoch(twepoch).build())
+            .workerId(workerId).dataCenterId(dataCenterId).build();
+    }
+
+    public static SnowflakeUtils getInstance(Layout layout, long workerId, long dataCenterId) {
+        return builder().layout(layout).workerId(workerId).dataCenterId(dataCenterId).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 借用时间模式, 序列耗尽或时钟回拨时逻辑时间戳领先系统时间继续生成
+     *
+     * @param twepoch            同种业务保持一致
+     * @param workerId           工作机器节点id
+     * @param dataCenterId       数据中心id
+     * @param maxLookAheadMillis 逻辑时间领先系统时间的告警阈值(毫秒), 超出后继续借用并计入{@link #getOverrunCount()}
+     */
+    public static SnowflakeUtils getBorrowedTimeInstance(long twepoch, long workerId, long dataCenterId,
+                                                         long maxLookAheadMillis) {
+        return builder().layout(Layout.builder().epoch(twepoch).build())
+            .workerId(workerId).dataCenterId(dataCenterId).borrowedTime(maxLookAheadMillis).build();
     }
 
     /**
-     * @param twepoch        同种业务保持一致
-     * @param workerId       工作机器节点id
-     * @param dataCenterId   数据中心id
+     * 分片模式, 将{@link #workerIdBits}的低laneBits位划分给各线程独立的lane
+     *
+     * @param twepoch      同种业务保持一致
+     * @param workerId     工作机器节点id, 占用workerIdBits的高(workerIdBits - laneBits)位
+     * @param dataCenterId 数据中心id
+     * @param laneBits     lane位数, 共2^laneBits个lane
      */
-    private SnowflakeUtils(long twepoch, long workerId, long dataCenterId) {
-        if (twepoch < 0) {
-            throw new IllegalArgumentException("twepoch can't be greater than %s or less than 0");
-        }
+    public static Striped getStripedInstance(long twepoch, long workerId, long dataCenterId, int laneBits) {
+        return builder().layout(Layout.builder().epoch(twepoch).build())
+            .workerId(workerId).dataCenterId(dataCenterId).buildStriped(laneBits);
+    }
+
+    /**
+     * @param layout             位布局
+     * @param workerId           工作机器节点id
+     * @param dataCenterId       数据中心id
+     * @param state              状态
+     * @param maxLookAheadMillis 小于0为默认模式, 否则为借用时间模式
+     * @param lease              机器节点id租约, 可为null
+     */
+    private SnowflakeUtils(Layout layout, long workerId, long dataCenterId, State state,
+                           long maxLookAheadMillis, LeaseHandle lease) {
+        this.layout = Objects.requireNonNull(layout, "layout");
+        this.twepoch = layout.epoch;
+        this.tickMillis = layout.tickMillis;
+        this.workerIdBits = layout.workerIdBits;
+        this.maxWorkerId = layout.workerIdMask;
+        this.dataCenterIdBits = layout.dataCenterIdBits;
+        this.maxDataCenterId = layout.dataCenterIdMask;
+        this.sequenceBits = layout.sequenceBits;
+        this.workerIdShift = layout.workerIdShift;
+        this.dataCenterIdShift = layout.dataCenterIdShift;
+        this.timestampLeftShift = layout.timestampShift;
+        this.sequenceMask = layout.sequenceMask;
+        this.maxTimestamp = layout.timestampMask;
         if (workerId > maxWorkerId || workerId < 0) {
             throw new IllegalArgumentException(
                 String.format("worker Id can't be greater than %s or less than 0", maxWorkerId));
@@ -68,13 +175,20 @@ public class SnowflakeUtils implements Serializable {
             throw new IllegalArgumentException(
                 String.format("datacenter Id can't be greater than %s or less than 0", maxDataCenterId));
         }
-        this.twepoch = twepoch;
         this.workerId = workerId;
         this.dataCenterId = dataCenterId;
+        this.nodeBits = (dataCenterId << dataCenterIdShift) | (workerId << workerIdShift);
+        this.state = state;
+        this.maxLookAhead = maxLookAheadMillis < 0 ? -1L : maxLookAheadMillis / tickMillis;
+        this.lease = lease;
+    }
+
+    public Layout getLayout() {
+        return layout;
     }
 
     /**
-     * 根据Snowflake的ID，获取机器id
+     * 根据Snowflake的ID，获取机器id, {@link Striped}生成的id返回(workerId << laneBits | lane)
      *
      * @param id snowflake算法生成的id
      * @return 所属机器的id
@@ -100,7 +214,7 @@ public class SnowflakeUtils implements Serializable {
      * @return 生成的时间
      */
     public long getGenerateDateTime(long id) {
-        return (id >> timestampLeftShift & ~(-1L << 41L)) + twepoch;
+        return (id >> timestampLeftShift & maxTimestamp) * tickMillis + twepoch;
     }
 
     /**
@@ -108,33 +222,72 @@ public class SnowflakeUtils implements Serializable {
      *
      * @return ID
      */
-    public synchronized long nextId() {
-        long timestamp = timestamp();
-        if (timestamp < lastTimestamp) {
-            if (lastTimestamp - timestamp < 2000) {
-                // 容忍2秒内的回拨，避免NTP校时造成的异常
-                timestamp = lastTimestamp;
-            } else {
-                // 如果服务器时间有问题(时钟后退) 报错。
-                throw new IllegalStateException(String.format("Clock moved backwards. Refusing to generate id for %sms",
-                    lastTimestamp - timestamp));
+    public long nextId() {
+        for (; ; ) {
+            final long current = state.get();
+            final long timestamp = timestamp();
+            final long next = reserve(current, timestamp);
+            if (next >= 0 && state.compareAndSet(current, next)) {
+                recordDrift(next, timestamp);
+                return toId(next);
             }
         }
+    }
 
-        if (timestamp == lastTimestamp) {
-            final long seq = (sequence + 1) & sequenceMask;
-            if (seq == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
-            }
-            sequence = seq;
-        } else {
-            sequence = 0L;
+    /**
+     * 批量获取ID
+     *
+     * @param n 数量
+     * @return 按生成顺序排列的ID
+     */
+    public long[] nextIds(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n can't be less than 0");
         }
+        long[] ids = new long[n];
+        nextIds(ids, 0, n);
+        return ids;
+    }
 
-        lastTimestamp = timestamp;
+    /**
+     * 批量获取ID, 填满整个数组
+     *
+     * @param dst 目标数组
+     */
+    public void nextIds(long[] dst) {
+        nextIds(dst, 0, dst.length);
+    }
 
-        return ((timestamp - twepoch) << timestampLeftShift) | (dataCenterId
-            << dataCenterIdShift) | (workerId << workerIdShift) | sequence;
+    /**
+     * 批量获取ID, 每次CAS预留当前毫秒内剩余的一段连续序列号
+     *
+     * @param dst    目标数组
+     * @param offset 起始下标
+     * @param length 数量
+     */
+    public void nextIds(long[] dst, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > dst.length - length) {
+            throw new IndexOutOfBoundsException(
+                String.format("offset: %s, length: %s, array length: %s", offset, length, dst.length));
+        }
+        int remaining = length;
+        while (remaining > 0) {
+            final long current = state.get();
+            final long timestamp = timestamp();
+            final long first = reserve(current, timestamp);
+            if (first < 0) {
+                continue;
+            }
+            final int reserved = (int) Math.min(remaining, sequenceMask - (first & sequenceMask) + 1);
+            if (state.compareAndSet(current, first + reserved - 1)) {
+                recordDrift(first, timestamp);
+                long id = toId(first);
+                for (int i = 0; i < reserved; i++) {
+                    dst[offset++] = id + i;
+                }
+                remaining -= reserved;
+            }
+        }
     }
 
     /**
@@ -146,37 +299,692 @@ public class SnowflakeUtils implements Serializable {
         return Long.toString(nextId());
     }
 
+    /**
+     * 释放机器节点id租约, 之后不能再生成ID
+     */
+    public void releaseWorkerId() {
+        if (lease != null) {
+            lease.release();
+        }
+    }
+
+    /**
+     * @return 是否为借用时间模式
+     */
+    public boolean isBorrowedTime() {
+        return maxLookAhead >= 0;
+    }
+
+    /**
+     * @return 借用时间模式下逻辑时间戳领先系统时间而前进的次数
+     */
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * @return 借用时间模式下领先超过maxLookAheadMillis后仍借用的时间戳个数
+     */
+    public long getOverrunCount() {
+        return overrunCount.sum();
+    }
+
+    /**
+     * @return 当前逻辑时间戳领先系统时间的毫秒数, 包括时钟回拨造成的差值
+     */
+    public long getDriftMillis() {
+        return Math.max(0L, (state.get() >>> sequenceBits) - timestamp()) * tickMillis;
+    }
+
+    /**
+     * @return 借用时间模式下观测到的最大领先毫秒数
+     */
+    public long getMaxDriftMillis() {
+        return maxDrift.get() * tickMillis;
+    }
+
     // ------------------------------------------------------------------------------------------------------------------------------------ Private method start
 
+    private long toId(long state) {
+        return ((state >>> sequenceBits) << timestampLeftShift) | nodeBits | (state & sequenceMask);
+    }
+
     /**
-     * 循环等待下一个时间
+     * 计算下一个状态
      *
-     * @param lastTimestamp 上次记录的时间
-     * @return 下一个时间
+     * @param current   当前状态
+     * @param timestamp 当前时间戳(相对twepoch)
+     * @return 下一个ID对应的状态, 小于0表示需要重试
      */
-    private static long tilNextMillis(long lastTimestamp) {
-        long timestamp = timestamp();
-        // 循环直到操作系统时间戳变化
-        while (timestamp == lastTimestamp) {
-            timestamp = timestamp();
+    private long reserve(long current, long timestamp) {
+        final long lastTimestamp = current >>> sequenceBits;
+        if (timestamp > lastTimestamp) {
+            checkTimestamp(timestamp);
+            checkLease();
+            return timestamp << sequenceBits;
         }
-        if (timestamp < lastTimestamp) {
-            // 如果发现新的时间戳比上次记录的时间戳数值小，说明操作系统时间发生了倒退，报错
+        if (maxLookAhead < 0) {
+            checkBackwards(lastTimestamp, timestamp);
+        }
+        if ((current & sequenceMask) != sequenceMask) {
+            // 同一毫秒, 或时钟回拨, 沿用上次的时间戳
+            return current + 1;
+        }
+        // 当前时间戳序列已用完
+        if (maxLookAhead < 0) {
+            waitNextTick(lastTimestamp, timestamp);
+            return -1L;
+        }
+        // 借用下一个时间戳, 超出maxLookAhead时同样借用, 只记录到统计中
+        checkTimestamp(lastTimestamp + 1);
+        return (lastTimestamp + 1) << sequenceBits;
+    }
+
+    private void recordDrift(long next, long timestamp) {
+        if (maxLookAhead < 0) {
+            return;
+        }
+        final long drift = (next >>> sequenceBits) - timestamp;
+        if (drift > 0) {
+            if ((next & sequenceMask) == 0) {
+                borrowCount.increment();
+                if (drift > maxLookAhead) {
+                    overrunCount.increment();
+                }
+            }
+            long max;
+            while (drift > (max = maxDrift.get())) {
+                if (maxDrift.compareAndSet(max, drift)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void checkTimestamp(long timestamp) {
+        if (timestamp > maxTimestamp) {
+            throw new IllegalStateException(
+                String.format("Timestamp exceeds %s bits since epoch %s", layout.timestampBits, twepoch));
+        }
+    }
+
+    private void checkLease() {
+        if (lease != null && !lease.lease.isValid()) {
+            throw new IllegalStateException(String.format("Worker id lease lost: %s", workerId));
+        }
+    }
+
+    private void checkBackwards(long lastTimestamp, long timestamp) {
+        final long backwards = (lastTimestamp - timestamp) * tickMillis;
+        if (backwards >= 2000) {
+            // 容忍2秒内的回拨，避免NTP校时造成的异常, 超出则报错
             throw new IllegalStateException(
-                String.format("Clock moved backwards. Refusing to generate id for %sms", lastTimestamp - timestamp));
+                String.format("Clock moved backwards. Refusing to generate id for %sms", backwards));
+        }
+    }
+
+    /**
+     * 序列耗尽时等待下一个时间戳: 先短暂自旋, 仍未到达则park到下一个时间戳的起点, 由调用方重新读取时间.
+     * 时间戳单位较大(如10ms, 1s)时竞争线程不会在整个单位时间内占用CPU
+     *
+     * @param lastTimestamp 上次记录的时间戳
+     * @param timestamp     当前时间戳
+     */
+    private void waitNextTick(long lastTimestamp, long timestamp) {
+        if (timestamp < lastTimestamp) {
+            // 回拨期间序列已耗尽, 无法继续沿用上次的时间戳，报错
+            throw new IllegalStateException(String.format("Clock moved backwards. Refusing to generate id for %sms",
+                (lastTimestamp - timestamp) * tickMillis));
+        }
+        for (int i = 0; i < SPINS; i++) {
+            if (timestamp() > lastTimestamp) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        final long remaining = (lastTimestamp + 1) * tickMillis + twepoch - System.currentTimeMillis();
+        if (remaining > 0) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remaining));
         }
-        return timestamp;
     }
 
     /**
      * 生成时间戳
      *
-     * @return 时间戳
+     * @return 相对twepoch的时间戳, 单位为{@link Layout#getTickMillis()}
      */
-    private static long timestamp() {
-        return System.currentTimeMillis();
+    private long timestamp() {
+        final long millis = System.currentTimeMillis() - twepoch;
+        return tickMillis == 1L ? millis : Math.floorDiv(millis, tickMillis);
     }
 
+    /**
+     * 状态值前后各填充7个long, 独占缓存行, 避免与相邻lane的状态或其他对象的字段伪共享.
+     * 父类字段总是排在子类字段之前, 由继承层次保证value位于两段填充之间.
+     * 非序列化父类需要可访问的无参构造器, 因此不能为private
+     */
+    @SuppressWarnings("unused")
+    abstract static class LhsPadding {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
 
+    abstract static class StateValue extends LhsPadding implements Serializable {
+        private static final long serialVersionUID = 1L;
+        protected volatile long value;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class State extends StateValue {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(StateValue.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private transient long p9, p10, p11, p12, p13, p14, p15;
+
+        long get() {
+            return value;
+        }
+
+        boolean compareAndSet(long expect, long update) {
+            return VALUE.compareAndSet(this, expect, update);
+        }
+
+    }
+
+    /**
+     * 分片雪花算法, 每个lane是一个独立的{@link SnowflakeUtils}, 机器节点id为(workerId << laneBits | lane),
+     * 线程首次使用时按轮询绑定到某个lane, 线程数不超过lane数时各lane之间没有共享写
+     */
+    public static final class Striped {
+
+        private final SnowflakeUtils[] lanes;
+
+        private final int laneBits;
+
+        private final long laneMask;
+
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private final ThreadLocal<SnowflakeUtils> local;
+
+        private final LeaseHandle lease;
+
+        private Striped(Layout layout, long workerId, long dataCenterId, int laneBits, long maxLookAheadMillis,
+                        LeaseHandle lease) {
+            checkLaneBits(layout, laneBits);
+            long maxWorkerId = layout.workerIdMask >>> laneBits;
+            if (workerId > maxWorkerId || workerId < 0) {
+                throw new IllegalArgumentException(
+                    String.format("worker Id can't be greater than %s or less than 0", maxWorkerId));
+            }
+            this.laneBits = laneBits;
+            this.laneMask = ~(-1L << laneBits);
+            this.lanes = new SnowflakeUtils[1 << laneBits];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new SnowflakeUtils(layout, (workerId << laneBits) | i, dataCenterId,
+                    new State(), maxLookAheadMillis, lease);
+            }
+            this.lease = lease;
+            this.local = ThreadLocal.withInitial(() -> lanes[cursor.getAndIncrement() & (lanes.length - 1)]);
+        }
+
+        /**
+         * @return 当前线程绑定的lane
+         */
+        public SnowflakeUtils lane() {
+            return local.get();
+        }
+
+        public long nextId() {
+            return local.get().nextId();
+        }
+
+        public long[] nextIds(int n) {
+            return local.get().nextIds(n);
+        }
+
+        public void nextIds(long[] dst) {
+            local.get().nextIds(dst);
+        }
+
+        public void nextIds(long[] dst, int offset, int length) {
+            local.get().nextIds(dst, offset, length);
+        }
+
+        public String nextIdStr() {
+            return local.get().nextIdStr();
+        }
+
+        /**
+         * 释放机器节点id租约, 之后所有lane都不能再生成ID
+         */
+        public void releaseWorkerId() {
+            if (lease != null) {
+                lease.release();
+            }
+        }
+
+        private static void checkLaneBits(Layout layout, int laneBits) {
+            if (laneBits < 0 || laneBits > layout.workerIdBits || laneBits > 30) {
+                throw new IllegalArgumentException(
+                    String.format("lane bits can't be greater than %s or less than 0", Math.min(layout.workerIdBits, 30)));
+            }
+        }
+
+        /**
+         * 根据Snowflake的ID，获取机器id(不含lane部分)
+         *
+         * @param id snowflake算法生成的id
+         * @return 所属机器的id
+         */
+        public long getWorkerId(long id) {
+            return lanes[0].getWorkerId(id) >>> laneBits;
+        }
+
+        /**
+         * 根据Snowflake的ID，获取lane
+         *
+         * @param id snowflake算法生成的id
+         * @return 生成该id的lane
+         */
+        public long getLane(long id) {
+            return lanes[0].getWorkerId(id) & laneMask;
+        }
+
+        public long getDataCenterId(long id) {
+            return lanes[0].getDataCenterId(id);
+        }
+
+        public long getGenerateDateTime(long id) {
+            return lanes[0].getGenerateDateTime(id);
+        }
+
+    }
+
+    /**
+     * 租约与定时续约任务
+     */
+    private static final class LeaseHandle {
+
+        private static volatile ScheduledExecutorService scheduler;
+
+        private final WorkerIdAllocator.Lease lease;
+
+        private final ScheduledFuture<?> heartbeat;
+
+        private LeaseHandle(WorkerIdAllocator.Lease lease, Duration interval) {
+            this.lease = lease;
+            long millis = interval.toMillis();
+            this.heartbeat = scheduler().scheduleWithFixedDelay(() -> {
+                try {
+                    lease.heartbeat();
+                } catch (RuntimeException ignored) {
+                    // 续约失败时由isValid()反映, 不能中断后续的续约
+                }
+            }, millis, millis, TimeUnit.MILLISECONDS);
+        }
+
+        private static LeaseHandle lease(WorkerIdAllocator allocator, long maxWorkerId, Duration interval) {
+            return new LeaseHandle(allocator.lease(maxWorkerId), interval);
+        }
+
+        private void release() {
+            heartbeat.cancel(false);
+            lease.release();
+        }
+
+        private static ScheduledExecutorService scheduler() {
+            if (scheduler == null) {
+                synchronized (LeaseHandle.class) {
+                    if (scheduler == null) {
+                        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                            Thread thread = new Thread(runnable, "snowflake-worker-id-heartbeat");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                    }
+                }
+            }
+            return scheduler;
+        }
+
+    }
+
+    public static final class Builder {
+
+        private Layout layout = Layout.DEFAULT;
+
+        private long workerId;
+
+        private long dataCenterId;
+
+        private long maxLookAheadMillis = -1L;
+
+        private WorkerIdAllocator workerIdAllocator;
+
+        private Duration heartbeatInterval = Duration.ofSeconds(10);
+
+        private Builder() {
+        }
+
+        public Builder layout(Layout layout) {
+            this.layout = Objects.requireNonNull(layout, "layout");
+            return this;
+        }
+
+        public Builder workerId(long workerId) {
+            this.workerId = workerId;
+            return this;
+        }
+
+        public Builder dataCenterId(long dataCenterId) {
+            this.dataCenterId = dataCenterId;
+            return this;
+        }
+
+        /**
+         * 借用时间模式
+         *
+         * @param maxLookAheadMillis 逻辑时间领先系统时间的告警阈值(毫秒), 超出后继续借用并计入{@link #getOverrunCount()}
+         */
+        public Builder borrowedTime(long maxLookAheadMillis) {
+            if (maxLookAheadMillis < 0) {
+                throw new IllegalArgumentException("max look-ahead millis can't be less than 0");
+            }
+            this.maxLookAheadMillis = maxLookAheadMillis;
+            return this;
+        }
+
+        /**
+         * 通过allocator租用机器节点id, 设置后忽略{@link #workerId(long)}
+         */
+        public Builder workerIdAllocator(WorkerIdAllocator workerIdAllocator) {
+            this.workerIdAllocator = workerIdAllocator;
+            return this;
+        }
+
+        /**
+         * @param heartbeatInterval 租约续约间隔, 默认10秒
+         */
+        public Builder heartbeatInterval(Duration heartbeatInterval) {
+            if (heartbeatInterval.isNegative() || heartbeatInterval.isZero()) {
+                throw new IllegalArgumentException("heartbeat interval must be positive");
+            }
+            this.heartbeatInterval = heartbeatInterval;
+            return this;
+        }
+
+        public SnowflakeUtils build() {
+            if (workerIdAllocator == null) {
+                return new SnowflakeUtils(layout, workerId, dataCenterId, new State(), maxLookAheadMillis, null);
+            }
+            LeaseHandle lease = LeaseHandle.lease(workerIdAllocator, layout.workerIdMask, heartbeatInterval);
+            try {
+                return new SnowflakeUtils(layout, lease.lease.getWorkerId(), dataCenterId, new State(),
+                    maxLookAheadMillis, lease);
+            } catch (RuntimeException e) {
+                lease.release();
+                throw e;
+            }
+        }
+
+        /**
+         * @param laneBits lane位数, 占用机器节点id的低laneBits位
+         */
+        public Striped buildStriped(int laneBits) {
+            if (workerIdAllocator == null) {
+                return new Striped(layout, workerId, dataCenterId, laneBits, maxLookAheadMillis, null);
+            }
+            Striped.checkLaneBits(layout, laneBits);
+            LeaseHandle lease = LeaseHandle.lease(workerIdAllocator, layout.workerIdMask >>> laneBits, heartbeatInterval);
+            try {
+                return new Striped(layout, lease.lease.getWorkerId(), dataCenterId, laneBits, maxLookAheadMillis, lease);
+            } catch (RuntimeException e) {
+                lease.release();
+                throw e;
+            }
+        }
+
+    }
+
+    /**
+     * ID位布局: [0][时间戳][数据中心id][机器节点id][序列号], 总位数不超过63, 保证ID为正数.
+     * 可解析任意布局生成的ID
+     */
+    public static final class Layout implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        public static final long DEFAULT_EPOCH = 1658914580040L;
+
+        /**
+         * 41位时间戳(毫秒), 2位数据中心, 8位机器节点, 12位序列号
+         */
+        public static final Layout DEFAULT = builder().build();
+
+        private final int timestampBits;
+        private final int dataCenterIdBits;
+        private final int workerIdBits;
+        private final int sequenceBits;
+        private final long epoch;
+        private final long tickMillis;
+
+        private final int workerIdShift;
+        private final int dataCenterIdShift;
+        private final int timestampShift;
+        private final long timestampMask;
+        private final long dataCenterIdMask;
+        private final long workerIdMask;
+        private final long sequenceMask;
+
+        private Layout(Builder builder) {
+            this.timestampBits = builder.timestampBits;
+            this.dataCenterIdBits = builder.dataCenterIdBits;
+            this.workerIdBits = builder.workerIdBits;
+            this.sequenceBits = builder.sequenceBits;
+            this.epoch = builder.epoch;
+            this.tickMillis = builder.tickMillis;
+            this.workerIdShift = sequenceBits;
+            this.dataCenterIdShift = sequenceBits + workerIdBits;
+            this.timestampShift = sequenceBits + workerIdBits + dataCenterIdBits;
+            this.timestampMask = ~(-1L << timestampBits);
+            this.dataCenterIdMask = ~(-1L << dataCenterIdBits);
+            this.workerIdMask = ~(-1L << workerIdBits);
+            this.sequenceMask = ~(-1L << sequenceBits);
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public int getTimestampBits() {
+            return timestampBits;
+        }
+
+        public int getDataCenterIdBits() {
+            return dataCenterIdBits;
+        }
+
+        public int getWorkerIdBits() {
+            return workerIdBits;
+        }
+
+        public int getSequenceBits() {
+            return sequenceBits;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        public long getTickMillis() {
+            return tickMillis;
+        }
+
+        /**
+         * @param id ID
+         * @return 生成时间, 毫秒
+         */
+        public long getTimestamp(long id) {
+            return (id >>> timestampShift & timestampMask) * tickMillis + epoch;
+        }
+
+        public long getDataCenterId(long id) {
+            return id >>> dataCenterIdShift & dataCenterIdMask;
+        }
+
+        public long getWorkerId(long id) {
+            return id >>> workerIdShift & workerIdMask;
+        }
+
+        public long getSequence(long id) {
+            return id & sequenceMask;
+        }
+
+        public Parts decode(long id) {
+            return new Parts(getTimestamp(id), getDataCenterId(id), getWorkerId(id), getSequence(id));
+        }
+
+        /**
+         * 按布局组装ID, 可用于构造按时间范围查询的边界
+         *
+         * @param timestamp    时间, 毫秒, 按tickMillis向下取整
+         * @param dataCenterId 数据中心id
+         * @param workerId     机器节点id
+         * @param sequence     序列号
+         * @return ID
+         */
+        public long encode(long timestamp, long dataCenterId, long workerId, long sequence) {
+            long tick = Math.floorDiv(timestamp - epoch, tickMillis);
+            checkRange("timestamp", tick, timestampMask);
+            checkRange("datacenter Id", dataCenterId, dataCenterIdMask);
+            checkRange("worker Id", workerId, workerIdMask);
+            checkRange("sequence", sequence, sequenceMask);
+            return (tick << timestampShift) | (dataCenterId << dataCenterIdShift) | (workerId << workerIdShift) | sequence;
+        }
+
+        private static void checkRange(String name, long value, long max) {
+            if (value > max || value < 0) {
+                throw new IllegalArgumentException(
+                    String.format("%s can't be greater than %s or less than 0", name, max));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Layout layout)) {
+                return false;
+            }
+            return timestampBits == layout.timestampBits && dataCenterIdBits == layout.dataCenterIdBits
+                && workerIdBits == layout.workerIdBits && sequenceBits == layout.sequenceBits
+                && epoch == layout.epoch && tickMillis == layout.tickMillis;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(timestampBits, dataCenterIdBits, workerIdBits, sequenceBits, epoch, tickMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Layout[timestamp=%s, dataCenterId=%s, workerId=%s, sequence=%s, epoch=%s, tickMillis=%s]",
+                timestampBits, dataCenterIdBits, workerIdBits, sequenceBits, epoch, tickMillis);
+        }
+
+        /**
+         * 解析结果
+         *
+         * @param timestamp    生成时间, 毫秒
+         * @param dataCenterId 数据中心id
+         * @param workerId     机器节点id
+         * @param sequence     序列号
+         */
+        public record Parts(long timestamp, long dataCenterId, long workerId, long sequence) {
+        }
+
+        public static final class Builder {
+
+            private int timestampBits = 41;
+            private int dataCenterIdBits = 2;
+            private int workerIdBits = 8;
+            private int sequenceBits = 12;
+            private long epoch = DEFAULT_EPOCH;
+            private long tickMillis = 1L;
+
+            private Builder() {
+            }
+
+            public Builder timestampBits(int timestampBits) {
+                this.timestampBits = timestampBits;
+                return this;
+            }
+
+            public Builder dataCenterIdBits(int dataCenterIdBits) {
+                this.dataCenterIdBits = dataCenterIdBits;
+                return this;
+            }
+
+            public Builder workerIdBits(int workerIdBits) {
+                this.workerIdBits = workerIdBits;
+                return this;
+            }
+
+            public Builder sequenceBits(int sequenceBits) {
+                this.sequenceBits = sequenceBits;
+                return this;
+            }
+
+            /**
+             * @param epoch 起始时间, 毫秒, 同种业务保持一致
+             */
+            public Builder epoch(long epoch) {
+                this.epoch = epoch;
+                return this;
+            }
+
+            /**
+             * @param tickMillis 时间戳单位, 如1(毫秒), 10(10毫秒), 1000(秒)
+             */
+            public Builder tickMillis(long tickMillis) {
+                this.tickMillis = tickMillis;
+                return this;
+            }
+
+            public Layout build() {
+                if (epoch < 0) {
+                    throw new IllegalArgumentException("epoch can't be less than 0");
+                }
+                if (tickMillis < 1) {
+                    throw new IllegalArgumentException("tick millis can't be less than 1");
+                }
+                if (timestampBits < 1 || sequenceBits < 1 || sequenceBits > 30
+                    || dataCenterIdBits < 0 || workerIdBits < 0) {
+                    throw new IllegalArgumentException(String.format(
+                        "invalid bits, timestamp: %s, datacenter: %s, worker: %s, sequence: %s, sequence bits range [1,30]",
+                        timestampBits, dataCenterIdBits, workerIdBits, sequenceBits));
+                }
+                int total = timestampBits + dataCenterIdBits + workerIdBits + sequenceBits;
+                if (total > 63) {
+                    throw new IllegalArgumentException(
+                        String.format("total bits can't be greater than 63, but was %s", total));
+                }
+                return new Layout(this);
+            }
+
+        }
+
+    }
 
 }
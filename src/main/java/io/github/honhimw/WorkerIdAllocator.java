@@ -0,0 +1,45 @@
+package io.github.honhimw;
+
+/**
+ * {@link SnowflakeUtils}机器节点id分配, 租约有效期间同一个id不会分配给其他节点
+ *
+ * @author hon_him
+ * @see FileLockWorkerIdAllocator
+ * @see InMemoryWorkerIdAllocator
+ * @since 2026-10-18
+ */
+public interface WorkerIdAllocator {
+
+    /**
+     * 租用一个机器节点id, 优先回收已失效的租约
+     *
+     * @param maxWorkerId 最大机器节点id(包含)
+     * @return 租约
+     * @throws IllegalStateException [0, maxWorkerId]均已被占用
+     */
+    Lease lease(long maxWorkerId);
+
+    interface Lease {
+
+        long getWorkerId();
+
+        /**
+         * 续约, 由{@link SnowflakeUtils}定时调用
+         *
+         * @return 租约是否仍然有效
+         */
+        boolean heartbeat();
+
+        /**
+         * 生成ID前检查, 实现需保证足够轻量
+         */
+        boolean isValid();
+
+        /**
+         * 释放租约
+         */
+        void release();
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.github.honhimw;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author hon_him
+ * @since 2026-10-18
+ */
+public class FastHashUtilsTest {
+
+    /**
+     * 奇数长度的byte[]之后写入CharSequence, 分组起始下标为奇数
+     */
+    @Test
+    public void streamingMixedOddOffsets() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            FastHashUtils.XxHash64 xx = FastHashUtils.newXxHash64(round);
+            FastHashUtils.Murmur3 murmur = FastHashUtils.newMurmur3(round);
+            ByteArrayOutputStream all = new ByteArrayOutputStream();
+            int parts = 1 + random.nextInt(6);
+            for (int p = 0; p < parts; p++) {
+                if (random.nextBoolean()) {
+                    byte[] bytes = new byte[random.nextInt(40) | 1];
+                    random.nextBytes(bytes);
+                    xx.update(bytes, 0, bytes.length);
+                    murmur.update(bytes, 0, bytes.length);
+                    all.writeBytes(bytes);
+                } else {
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = random.nextInt(80); i > 0; i--) {
+                        sb.append((char) random.nextInt(0xD800));
+                    }
+                    xx.update(sb);
+                    murmur.update(sb);
+                    all.writeBytes(sb.toString().getBytes(UTF_16LE));
+                }
+            }
+            byte[] expected = all.toByteArray();
+            assertEquals(FastHashUtils.xxHash64(expected, 0, expected.length, round), xx.getValue());
+            assertEquals(FastHashUtils.murmur3(expected, 0, expected.length, round), murmur.getValue());
+        }
+    }
+
+    @Test
+    public void streamingMatchesOneShot() {
+        byte[] head = {1, 2, 3};
+        String text = "streaming odd offset";
+        byte[] expected = new byte[head.length + text.length() * 2];
+        System.arraycopy(head, 0, expected, 0, head.length);
+        System.arraycopy(text.getBytes(UTF_16LE), 0, expected, head.length, text.length() * 2);
+
+        FastHashUtils.XxHash64 xx = FastHashUtils.newXxHash64();
+        xx.update(head, 0, head.length);
+        xx.update(text);
+        assertEquals(FastHashUtils.xxHash64(expected), xx.getValue());
+
+        FastHashUtils.Murmur3 murmur = FastHashUtils.newMurmur3();
+        murmur.update(head, 0, head.length);
+        murmur.update(text);
+        assertEquals(FastHashUtils.murmur3(expected), murmur.getValue());
+        assertArrayEquals(FastHashUtils.murmur3Bytes(expected), murmur.digest());
+    }
+
+}